@@ -0,0 +1,10 @@
+CREATE TABLE recommendation_cache
+(
+    cache_key  VARCHAR(128)                NOT NULL,
+    payload    TEXT                        NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE    NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE    NOT NULL,
+    CONSTRAINT pk_recommendation_cache PRIMARY KEY (cache_key)
+);
+
+CREATE INDEX idx_recommendation_cache_expires_at ON recommendation_cache (expires_at);
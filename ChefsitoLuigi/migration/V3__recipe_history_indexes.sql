@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS idx_recipes_open_ai_id ON recipes (open_ai_id);
+
+CREATE INDEX IF NOT EXISTS idx_user_recipe_history_recipe_user ON user_recipe_history (recipe_id, user_id);
@@ -0,0 +1,26 @@
+-- open_ai_id pasa a ser un hash del contenido (título + ingredientes) y único.
+-- Antes de crear el índice se fusionan las recetas con el mismo open_ai_id: se conserva la más antigua.
+CREATE TEMP TABLE recipe_duplicates AS
+SELECT id, keep_id
+FROM (SELECT id, MIN(id) OVER (PARTITION BY open_ai_id) AS keep_id
+      FROM recipes
+      WHERE open_ai_id IS NOT NULL) r
+WHERE id <> keep_id;
+
+INSERT INTO user_recipe_history (recipe_id, user_id)
+SELECT DISTINCT d.keep_id, h.user_id
+FROM user_recipe_history h
+         JOIN recipe_duplicates d ON d.id = h.recipe_id
+WHERE NOT EXISTS (SELECT 1 FROM user_recipe_history x WHERE x.recipe_id = d.keep_id AND x.user_id = h.user_id);
+
+DELETE FROM user_recipe_history WHERE recipe_id IN (SELECT id FROM recipe_duplicates);
+DELETE FROM recipe_ingredients_names WHERE recipe_id IN (SELECT id FROM recipe_duplicates);
+DELETE FROM recipe_diet_tags WHERE recipe_id IN (SELECT id FROM recipe_duplicates);
+DELETE FROM recipe_ingredients_rel WHERE recipe_id IN (SELECT id FROM recipe_duplicates);
+DELETE FROM recipe_ingredients WHERE recipe_id IN (SELECT id FROM recipe_duplicates);
+DELETE FROM recipes WHERE id IN (SELECT id FROM recipe_duplicates);
+
+DROP TABLE recipe_duplicates;
+
+DROP INDEX IF EXISTS idx_recipes_open_ai_id;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_recipes_open_ai_id ON recipes (open_ai_id);
@@ -0,0 +1,33 @@
+-- Nombres plegados (minúsculas, sin tildes y con cualquier separador reducido a un espacio,
+-- igual que TextNormalizer.fold) para que las búsquedas por nombre usen índices.
+CREATE EXTENSION IF NOT EXISTS unaccent;
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE ingredients ADD COLUMN IF NOT EXISTS name_folded VARCHAR(255);
+ALTER TABLE ingredients ADD COLUMN IF NOT EXISTS name_es_folded VARCHAR(255);
+
+UPDATE ingredients
+SET name_folded    = btrim(regexp_replace(lower(unaccent(name)), '[^a-z0-9]+', ' ', 'g')),
+    name_es_folded = CASE
+                         WHEN name_es IS NULL THEN NULL
+                         ELSE btrim(regexp_replace(lower(unaccent(name_es)), '[^a-z0-9]+', ' ', 'g')) END;
+
+-- Antes del índice único se fusionan los ingredientes con el mismo nombre plegado: se conserva el más antiguo
+CREATE TEMP TABLE ingredient_duplicates AS
+SELECT id, keep_id
+FROM (SELECT id, MIN(id) OVER (PARTITION BY name_folded) AS keep_id
+      FROM ingredients) i
+WHERE id <> keep_id;
+
+UPDATE pantry_items p SET ingredient_id = d.keep_id FROM ingredient_duplicates d WHERE p.ingredient_id = d.id;
+UPDATE recipe_ingredients r SET ingredient_id = d.keep_id FROM ingredient_duplicates d WHERE r.ingredient_id = d.id;
+UPDATE recipe_ingredients_rel r SET ingredient_id = d.keep_id FROM ingredient_duplicates d WHERE r.ingredient_id = d.id;
+DELETE FROM ingredients WHERE id IN (SELECT id FROM ingredient_duplicates);
+
+DROP TABLE ingredient_duplicates;
+
+-- Igualdad exacta (findByNameFolded / findByNameFoldedIn)
+CREATE UNIQUE INDEX IF NOT EXISTS uq_ingredients_name_folded ON ingredients (name_folded);
+-- Subcadenas (LIKE '%x%') en inglés y español
+CREATE INDEX IF NOT EXISTS idx_ingredients_name_folded_trgm ON ingredients USING gin (name_folded gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_ingredients_name_es_folded_trgm ON ingredients USING gin (name_es_folded gin_trgm_ops);
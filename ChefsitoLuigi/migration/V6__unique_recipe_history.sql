@@ -0,0 +1,11 @@
+-- Un par (receta, usuario) solo puede aparecer una vez en el historial: el índice pasa a ser único
+-- para que la inserción por lotes use ON CONFLICT DO NOTHING sin carreras entre escritores.
+-- Antes se eliminan los pares repetidos que hayan podido colarse (la tabla no tiene id: se usa ctid).
+DELETE FROM user_recipe_history a
+    USING user_recipe_history b
+WHERE a.recipe_id = b.recipe_id
+  AND a.user_id = b.user_id
+  AND a.ctid > b.ctid;
+
+DROP INDEX IF EXISTS idx_user_recipe_history_recipe_user;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_user_recipe_history_recipe_user ON user_recipe_history (recipe_id, user_id);
@@ -0,0 +1,13 @@
+-- Restricciones (alergias, intolerancias y no deseados, normalizados) con las que se generó cada receta.
+-- El motor local solo sirve una receta si estas cubren todas las de quien pregunta;
+-- las recetas anteriores quedan sin restricciones y solo se sirven a usuarios sin ninguna.
+CREATE TABLE IF NOT EXISTS recipe_exclusions
+(
+    recipe_id BIGINT NOT NULL,
+    exclusion VARCHAR(255)
+);
+
+ALTER TABLE recipe_exclusions
+    ADD CONSTRAINT fk_recipe_exclusions_on_recipe FOREIGN KEY (recipe_id) REFERENCES recipes (id);
+
+CREATE INDEX IF NOT EXISTS idx_recipe_exclusions_recipe_id ON recipe_exclusions (recipe_id);
@@ -0,0 +1,3 @@
+-- Versión de despensa y perfil por usuario, compartida entre instancias: la caché de
+-- recomendaciones por usuario la usa como clave, así un cambio en un nodo invalida todos.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS recommendation_version BIGINT NOT NULL DEFAULT 0;
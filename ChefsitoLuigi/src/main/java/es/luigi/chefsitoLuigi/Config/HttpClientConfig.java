@@ -0,0 +1,92 @@
+package es.luigi.chefsitoLuigi.Config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Clientes HTTP salientes. Cada destino tiene su propio pool de conexiones y timeouts,
+ * así un proveedor lento no agota las conexiones del resto.
+ * Métricas: httpcomponents.httpclient.pool.* (pool) y http.client.requests (latencia por host).
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${http.client.pool-acquire-timeout-ms:2000}")
+    private long poolAcquireTimeoutMs;
+
+    @Value("${http.client.idle-eviction-seconds:30}")
+    private long idleEvictionSeconds;
+
+    // Cliente genérico (TheMealDB y otros servicios externos)
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient defaultHttpClient(MeterRegistry meterRegistry,
+                                                 @Value("${http.client.default.connect-timeout-ms:3000}") long connectTimeoutMs,
+                                                 @Value("${http.client.default.read-timeout-ms:10000}") long readTimeoutMs,
+                                                 @Value("${http.client.default.max-connections:20}") int maxConnections,
+                                                 @Value("${http.client.default.max-connections-per-route:10}") int maxPerRoute) {
+        return buildHttpClient("default", meterRegistry, connectTimeoutMs, readTimeoutMs, maxConnections, maxPerRoute);
+    }
+
+    // Cliente de OpenAI: respuestas largas, timeout de lectura mayor
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient openAiHttpClient(MeterRegistry meterRegistry,
+                                                @Value("${http.client.openai.connect-timeout-ms:3000}") long connectTimeoutMs,
+                                                @Value("${http.client.openai.read-timeout-ms:60000}") long readTimeoutMs,
+                                                @Value("${http.client.openai.max-connections:50}") int maxConnections) {
+        return buildHttpClient("openai", meterRegistry, connectTimeoutMs, readTimeoutMs, maxConnections, maxConnections);
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Qualifier("defaultHttpClient") CloseableHttpClient httpClient) {
+        return builder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient)).build();
+    }
+
+    @Bean
+    public RestTemplate openAiRestTemplate(RestTemplateBuilder builder,
+                                           @Qualifier("openAiHttpClient") CloseableHttpClient httpClient) {
+        return builder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient)).build();
+    }
+
+    private CloseableHttpClient buildHttpClient(String name, MeterRegistry meterRegistry,
+                                                long connectTimeoutMs, long readTimeoutMs,
+                                                int maxConnections, int maxPerRoute) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(meterRegistry);
+
+        // La compresión gzip/deflate viene activada por defecto en HttpClient 5
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds))
+                .build();
+    }
+}
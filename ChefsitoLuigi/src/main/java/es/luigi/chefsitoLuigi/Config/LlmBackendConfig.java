@@ -0,0 +1,50 @@
+package es.luigi.chefsitoLuigi.Config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Service.Impl.ChatCompletionBackend;
+import es.luigi.chefsitoLuigi.Service.Impl.ChatRecordingStore;
+import es.luigi.chefsitoLuigi.Service.Impl.OpenAiChatClient;
+import es.luigi.chefsitoLuigi.Service.Impl.RecordingChatBackend;
+import es.luigi.chefsitoLuigi.Service.Impl.ReplayChatBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Elige el backend de chat según openai.backend.mode (live, record o replay).
+ * Los servicios inyectan ChatCompletionBackend y no saben cuál les ha tocado.
+ */
+@Configuration
+public class LlmBackendConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmBackendConfig.class);
+
+    @Bean
+    @Primary
+    public ChatCompletionBackend chatCompletionBackend(OpenAiChatClient openAiChatClient,
+                                                       ObjectMapper objectMapper,
+                                                       MeterRegistry meterRegistry,
+                                                       @Value("${openai.backend.mode:live}") String mode,
+                                                       @Value("${openai.backend.recordings-dir:recordings/openai}") String recordingsDir,
+                                                       @Value("${openai.backend.replay.latency-ms:0}") long latencyMs,
+                                                       @Value("${openai.backend.replay.jitter-ms:0}") long jitterMs,
+                                                       @Value("${openai.backend.replay.chunk-delay-ms:0}") long chunkDelayMs,
+                                                       @Value("${openai.backend.replay.match-any-on-miss:false}") boolean matchAnyOnMiss) {
+        ChatCompletionBackend.Mode backendMode = ChatCompletionBackend.Mode.valueOf(mode.trim().toUpperCase());
+        logger.info("🤖 Backend de OpenAI: {}", backendMode);
+        ChatRecordingStore store = new ChatRecordingStore(Path.of(recordingsDir), objectMapper);
+        return switch (backendMode) {
+            case LIVE -> openAiChatClient;
+            case RECORD -> new RecordingChatBackend(openAiChatClient, store, meterRegistry);
+            case REPLAY -> new ReplayChatBackend(store, matchAnyOnMiss, Duration.ofMillis(latencyMs),
+                    Duration.ofMillis(jitterMs), Duration.ofMillis(chunkDelayMs), meterRegistry);
+        };
+    }
+}
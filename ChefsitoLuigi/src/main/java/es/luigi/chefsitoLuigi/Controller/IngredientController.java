@@ -66,11 +66,8 @@ public class IngredientController {
 
         System.out.println("🔍 Búsqueda de ingredientes: " + query);
 
-        List<IngredientDto> results = ingredientService.findAll().stream()
-                .filter(ingredient ->
-                        ingredient.getName().toLowerCase().contains(query.toLowerCase()))
-                .limit(limit)
-                .collect(Collectors.toList());
+        // Misma búsqueda ordenada que smart-search, pero sin alta dinámica: endpoint público de solo lectura
+        List<IngredientDto> results = searchService.findIngredients(query, limit);
 
         System.out.println("✅ Encontrados " + results.size() + " ingredientes para: " + query);
 
@@ -81,17 +78,26 @@ public class IngredientController {
     @GetMapping("/smart-search")
     public ResponseEntity<List<IngredientDto>> smartSearchIngredients(
             @RequestParam String query,
+            @RequestParam(defaultValue = "20") int limit,
             @RequestHeader(value = "Accept-Language", defaultValue = "en") String language) {
 
         System.out.println("🔍 Búsqueda inteligente: '" + query + "' en idioma: " + language);
 
-        List<IngredientDto> results = searchService.searchIngredients(query, language);
+        List<IngredientDto> results = searchService.searchIngredients(query, language, limit);
 
         System.out.println("✅ Encontrados " + results.size() + " ingredientes para: " + query);
 
         return ResponseEntity.ok(results);
     }
 
+    @Operation(summary = "Autocompletar ingredientes por prefijo (inglés/español, los más usados primero)")
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<IngredientDto>> autocomplete(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(searchService.autocomplete(query, limit));
+    }
+
     @Operation(summary = "Buscar ingredientes por texto de voz")
     @PostMapping("/voice-search")
     public ResponseEntity<?> voiceSearch(
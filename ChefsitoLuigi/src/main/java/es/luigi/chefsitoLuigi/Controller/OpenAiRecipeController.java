@@ -2,11 +2,21 @@ package es.luigi.chefsitoLuigi.Controller;
 
 import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeRequest;
 import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.RecommendationJobDto;
+import es.luigi.chefsitoLuigi.Exception.ResourceNotFoundException;
+import es.luigi.chefsitoLuigi.Security.CustomUserDetailsService;
 import es.luigi.chefsitoLuigi.Service.OpenAiRecipeService;
+import es.luigi.chefsitoLuigi.Service.RecommendationJobService;
+import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -15,7 +25,10 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OpenAiRecipeController {
 
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiRecipeController.class);
+
     private final OpenAiRecipeService openAiRecipeService;
+    private final RecommendationJobService recommendationJobService;
 
     @PostMapping("/by-ingredients")
     @PreAuthorize("#request.userId == authentication.principal.id or hasRole('ADMIN')")
@@ -32,4 +45,58 @@ public class OpenAiRecipeController {
         List<OpenAiRecipeResponse> recipes = openAiRecipeService.getRecipeRecommendationsForUser(userId);
         return ResponseEntity.ok(recipes);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Recetas recomendadas en stream (SSE): un evento 'recipe' por receta y un 'done' final")
+    @GetMapping(value = "/for-user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("#userId == authentication.principal.id or hasRole('ADMIN')")
+    public SseEmitter streamRecipesForUser(@PathVariable Long userId) {
+        logger.debug("📡 Usuario {} solicitando sus recetas en stream", userId);
+        return recommendationJobService.streamForUser(userId);
+    }
+
+    // Modo asíncrono: devuelve un jobId inmediatamente y la generación sigue en segundo plano
+    @Operation(summary = "Crear trabajo asíncrono de recetas por ingredientes")
+    @PostMapping("/jobs")
+    @PreAuthorize("#request.userId == authentication.principal.id or hasRole('ADMIN')")
+    public ResponseEntity<RecommendationJobDto> createJob(@RequestBody OpenAiRecipeRequest request) {
+        logger.debug("🧾 Usuario {} creando trabajo de recetas por ingredientes", request.getUserId());
+        return ResponseEntity.accepted().body(recommendationJobService.submit(request));
+    }
+
+    @Operation(summary = "Crear trabajo asíncrono de recetas recomendadas para el usuario")
+    @PostMapping("/jobs/for-user/{userId}")
+    @PreAuthorize("#userId == authentication.principal.id or hasRole('ADMIN')")
+    public ResponseEntity<RecommendationJobDto> createJobForUser(@PathVariable Long userId) {
+        logger.debug("🧾 Usuario {} creando trabajo de recetas recomendadas", userId);
+        return ResponseEntity.accepted().body(recommendationJobService.submitForUser(userId));
+    }
+
+    @Operation(summary = "Consultar el estado de un trabajo de recetas")
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<RecommendationJobDto> getJob(@PathVariable String jobId, Authentication authentication) {
+        return ResponseEntity.ok(findAccessibleJob(jobId, authentication));
+    }
+
+    @Operation(summary = "Suscribirse por SSE a la finalización de un trabajo de recetas")
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToJob(@PathVariable String jobId, Authentication authentication) {
+        findAccessibleJob(jobId, authentication);
+        return recommendationJobService.subscribe(jobId);
+    }
+
+    /**
+     * Los trabajos de otros usuarios se tratan como inexistentes (salvo para admin)
+     */
+    private RecommendationJobDto findAccessibleJob(String jobId, Authentication authentication) {
+        return recommendationJobService.findJob(jobId)
+                .filter(job -> isOwnerOrAdmin(job.getUserId(), authentication))
+                .orElseThrow(() -> new ResourceNotFoundException("RecommendationJob", "id", jobId));
+    }
+
+    private boolean isOwnerOrAdmin(Long userId, Authentication authentication) {
+        boolean isAdmin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        return isAdmin || (authentication.getPrincipal() instanceof CustomUserDetailsService.CustomUserDetails userDetails
+                && userDetails.getId().equals(userId));
+    }
+}
@@ -0,0 +1,38 @@
+package es.luigi.chefsitoLuigi.Dto.OpenAI;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Evento "data:" del stream SSE de /v1/chat/completions.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ChatCompletionChunk {
+    private List<Choice> choices;
+    // Solo en el último evento, con stream_options.include_usage=true
+    private ChatCompletionResponse.Usage usage;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Choice {
+        private Delta delta;
+        @JsonProperty("finish_reason")
+        private String finishReason;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Delta {
+        private String content;
+    }
+}
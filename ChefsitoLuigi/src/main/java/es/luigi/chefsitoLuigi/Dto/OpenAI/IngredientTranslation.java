@@ -0,0 +1,15 @@
+package es.luigi.chefsitoLuigi.Dto.OpenAI;
+
+import lombok.*;
+
+/**
+ * Traducción de un ingrediente tal como la devuelve OpenAI.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngredientTranslation {
+    private String en;
+    private String es;
+}
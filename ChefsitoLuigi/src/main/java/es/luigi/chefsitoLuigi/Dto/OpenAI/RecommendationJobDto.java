@@ -0,0 +1,20 @@
+package es.luigi.chefsitoLuigi.Dto.OpenAI;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationJobDto {
+    private String jobId;
+    private Long userId;
+    private RecommendationJobStatus status;
+    private Instant createdAt;
+    private Instant completedAt;
+    private List<OpenAiRecipeResponse> recipes; // Solo cuando status = COMPLETED
+    private String error; // Solo cuando status = FAILED
+}
@@ -0,0 +1,8 @@
+package es.luigi.chefsitoLuigi.Dto.OpenAI;
+
+public enum RecommendationJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
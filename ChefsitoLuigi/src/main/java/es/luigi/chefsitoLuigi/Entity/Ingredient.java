@@ -1,5 +1,6 @@
 package es.luigi.chefsitoLuigi.Entity;
 
+import es.luigi.chefsitoLuigi.Util.TextNormalizer;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -10,7 +11,7 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "ingredients")
+@Table(name = "ingredients", indexes = @Index(name = "uq_ingredients_name_folded", columnList = "nameFolded", unique = true))
 public class Ingredient {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -29,4 +30,18 @@ public class Ingredient {
     private String imageUrl;
 
     private LocalDate expiryDate;
+
+    // Nombres plegados (minúsculas, sin tildes ni signos) para buscar por índice: se calculan al guardar
+    @Setter(AccessLevel.NONE)
+    private String nameFolded;
+
+    @Setter(AccessLevel.NONE)
+    private String nameEsFolded;
+
+    @PrePersist
+    @PreUpdate
+    public void foldNames() {
+        nameFolded = TextNormalizer.fold(name);
+        nameEsFolded = nameEs != null ? TextNormalizer.fold(nameEs) : null;
+    }
 }
\ No newline at end of file
@@ -7,7 +7,7 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "recipes")
+@Table(name = "recipes", indexes = @Index(name = "uq_recipes_open_ai_id", columnList = "openAiId", unique = true))
 @Data
 @Builder
 @AllArgsConstructor
@@ -35,6 +35,12 @@ public class Recipe {
     @Column(name = "diet_tag")
     private Set<String> dietTags;
 
+    // Alergias, intolerancias y no deseados (normalizados) con los que se generó la receta
+    @ElementCollection
+    @CollectionTable(name = "recipe_exclusions", joinColumns = @JoinColumn(name = "recipe_id"))
+    @Column(name = "exclusion")
+    private Set<String> exclusions;
+
     @ManyToMany
     @JoinTable(name = "recipe_ingredients_rel",
             joinColumns = @JoinColumn(name = "recipe_id"),
@@ -49,6 +55,7 @@ public class Recipe {
     @ManyToMany
     @JoinTable(name = "user_recipe_history",
             joinColumns = @JoinColumn(name = "recipe_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id"))
+            inverseJoinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "uq_user_recipe_history_recipe_user", columnList = "recipe_id, user_id", unique = true))
     private List<User> recommendedToUsers;
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package es.luigi.chefsitoLuigi.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Entrada de la caché persistente (L2) de recomendaciones.
+ * payload guarda la lista de OpenAiRecipeResponse serializada en JSON.
+ */
+@Entity
+@Table(name = "recommendation_cache",
+        indexes = @Index(name = "idx_recommendation_cache_expires_at", columnList = "expires_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationCacheEntry {
+    @Id
+    @Column(name = "cache_key", length = 128)
+    private String cacheKey;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -2,6 +2,7 @@ package es.luigi.chefsitoLuigi.Entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.Set;
 
@@ -27,4 +28,9 @@ public class User {
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "role")
     private Set<String> roles;
+
+    // Sube con cada cambio de despensa o perfil (UserRepository.bumpRecommendationVersion); JPA no la escribe
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long recommendationVersion;
 }
\ No newline at end of file
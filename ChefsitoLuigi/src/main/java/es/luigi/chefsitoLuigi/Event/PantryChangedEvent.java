@@ -0,0 +1,7 @@
+package es.luigi.chefsitoLuigi.Event;
+
+/**
+ * Se publica cuando un usuario añade, modifica o elimina un item de su despensa.
+ */
+public record PantryChangedEvent(Long userId) {
+}
@@ -0,0 +1,7 @@
+package es.luigi.chefsitoLuigi.Event;
+
+/**
+ * Se publica cuando un usuario crea o actualiza su perfil (alergias, dieta...).
+ */
+public record UserProfileChangedEvent(Long userId) {
+}
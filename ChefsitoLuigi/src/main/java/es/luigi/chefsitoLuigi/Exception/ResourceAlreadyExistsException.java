@@ -0,0 +1,7 @@
+package es.luigi.chefsitoLuigi.Exception;
+
+public class ResourceAlreadyExistsException extends RuntimeException {
+    public ResourceAlreadyExistsException(String resource, String field, Object value) {
+        super(resource + " already exists with " + field + " = " + value);
+    }
+}
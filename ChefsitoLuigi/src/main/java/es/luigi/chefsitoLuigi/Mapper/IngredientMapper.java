@@ -11,5 +11,8 @@ public interface IngredientMapper {
     @Mapping(source = "nameEs", target = "nameEs")
     IngredientDto toDto(Ingredient entity);
 
+    // Los nombres plegados los calcula la propia entidad al guardarse
+    @Mapping(target = "nameFolded", ignore = true)
+    @Mapping(target = "nameEsFolded", ignore = true)
     Ingredient toEntity(IngredientDto dto);
 }
\ No newline at end of file
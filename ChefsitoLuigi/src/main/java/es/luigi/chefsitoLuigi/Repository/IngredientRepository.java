@@ -1,19 +1,57 @@
 package es.luigi.chefsitoLuigi.Repository;
 
 import es.luigi.chefsitoLuigi.Entity.Ingredient;
+import es.luigi.chefsitoLuigi.Util.TextNormalizer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
 
-    @Query("SELECT i FROM Ingredient i WHERE LOWER(i.name) = LOWER(:name)")
-    Optional<Ingredient> findByNameIgnoreCase(@Param("name") String name);
+    // Igualdad sobre name_folded: usa el índice único uq_ingredients_name_folded
+    Optional<Ingredient> findByNameFolded(String nameFolded);
 
-    // Método adicional para búsqueda flexible
-    @Query("SELECT i FROM Ingredient i WHERE LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%')) OR LOWER(i.nameEs) LIKE LOWER(CONCAT('%', :name, '%'))")
-    List<Ingredient> findByNameContainingIgnoreCase(@Param("name") String name);
-}
\ No newline at end of file
+    List<Ingredient> findByNameFoldedIn(Collection<String> nameFolded);
+
+    // Filas anteriores a las columnas plegadas (se rellenan al arrancar)
+    List<Ingredient> findByNameFoldedIsNull();
+
+    /** Sin distinguir mayúsculas ni tildes: "limon" encuentra "Limón". */
+    default Optional<Ingredient> findByNameIgnoreCase(String name) {
+        return findByNameFolded(TextNormalizer.fold(name));
+    }
+
+    // Método adicional para búsqueda flexible; LIKE '%x%' sobre columnas plegadas con índice GIN pg_trgm
+    @Query("SELECT i FROM Ingredient i WHERE i.nameFolded LIKE CONCAT('%', :fragment, '%') OR i.nameEsFolded LIKE CONCAT('%', :fragment, '%')")
+    List<Ingredient> findByNameFoldedContaining(@Param("fragment") String fragment);
+
+    default List<Ingredient> findByNameContainingIgnoreCase(String name) {
+        return findByNameFoldedContaining(TextNormalizer.fold(name));
+    }
+
+    // Fusión de duplicados (igual que V5): las referencias pasan al ingrediente que se conserva
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE pantry_items SET ingredient_id = :keepId WHERE ingredient_id IN (:duplicateIds)", nativeQuery = true)
+    int repointPantryItems(@Param("duplicateIds") Collection<Long> duplicateIds, @Param("keepId") Long keepId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE recipe_ingredients_rel SET ingredient_id = :keepId WHERE ingredient_id IN (:duplicateIds)", nativeQuery = true)
+    int repointRecipeIngredientsRel(@Param("duplicateIds") Collection<Long> duplicateIds, @Param("keepId") Long keepId);
+
+    // recipe_ingredients es la tabla antigua de V1: sin Flyway puede no existir
+    @Query(value = "SELECT to_regclass('recipe_ingredients') IS NOT NULL", nativeQuery = true)
+    boolean hasLegacyRecipeIngredients();
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE recipe_ingredients SET ingredient_id = :keepId WHERE ingredient_id IN (:duplicateIds)", nativeQuery = true)
+    int repointLegacyRecipeIngredients(@Param("duplicateIds") Collection<Long> duplicateIds, @Param("keepId") Long keepId);
+}
@@ -16,4 +16,8 @@ public interface PantryItemRepository extends JpaRepository<PantryItem, Long> {
     // Nuevo método para verificar propiedad
     @Query("SELECT p FROM PantryItem p WHERE p.id = :id AND p.user.id = :userId")
     Optional<PantryItem> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Nº de despensas en las que está cada ingrediente: [ingredientId, usos]
+    @Query("SELECT p.ingredient.id, COUNT(p) FROM PantryItem p GROUP BY p.ingredient.id")
+    List<Object[]> countUsesByIngredient();
 }
\ No newline at end of file
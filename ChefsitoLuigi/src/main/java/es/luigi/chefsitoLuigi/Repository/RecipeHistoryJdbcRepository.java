@@ -0,0 +1,151 @@
+package es.luigi.chefsitoLuigi.Repository;
+
+import es.luigi.chefsitoLuigi.Entity.Recipe;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Persistencia por conjuntos del historial de recomendaciones con JDBC.
+ * Un número fijo de sentencias por lote, sin importar cuántas recetas
+ * ni cuántos usuarios acumule cada receta (no se hidrata recommendedToUsers).
+ */
+@Repository
+@RequiredArgsConstructor
+public class RecipeHistoryJdbcRepository {
+
+    private static final String INSERT_RECIPE_COLUMNS =
+            "INSERT INTO recipes (title, description, instructions, preparation_time, category, difficulty, source, open_ai_id) VALUES ";
+    private static final String INSERT_RECIPE_VALUES = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Recetas recomendadas a un usuario, pendientes de guardar en su historial. */
+    public record PendingRecommendation(Long userId, List<Recipe> recipes) {
+    }
+
+    /**
+     * Inserta las recetas que aún no existen (por openAiId, único) y asocia cada una a su usuario
+     * si no lo estaba ya, con las mismas sentencias para todo el lote.
+     * Los usuarios que ya no existen se ignoran. Devuelve los ids de las recetas, por openAiId.
+     */
+    @Transactional
+    public Map<String, Long> saveRecommendations(List<PendingRecommendation> pending) {
+        Set<Long> existingUsers = findExistingUserIds(pending.stream().map(PendingRecommendation::userId).toList());
+
+        // 1. Recetas ya guardadas, en una sola consulta
+        Map<String, Recipe> byOpenAiId = new LinkedHashMap<>();
+        for (PendingRecommendation recommendation : pending) {
+            if (existingUsers.contains(recommendation.userId())) {
+                recommendation.recipes().forEach(recipe -> byOpenAiId.putIfAbsent(recipe.getOpenAiId(), recipe));
+            }
+        }
+        if (byOpenAiId.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Long> recipeIds = findIdsByOpenAiIds(byOpenAiId.keySet());
+
+        // 2. Las nuevas con un único INSERT multi-fila; si otra transacción insertó la misma
+        // receta entretanto, el índice único la descarta y se lee su id
+        List<Recipe> newRecipes = byOpenAiId.values().stream()
+                .filter(recipe -> !recipeIds.containsKey(recipe.getOpenAiId()))
+                .toList();
+        if (!newRecipes.isEmpty()) {
+            Map<String, Long> inserted = insertRecipes(newRecipes);
+            recipeIds.putAll(inserted);
+            insertElementCollections(newRecipes.stream().filter(recipe -> inserted.containsKey(recipe.getOpenAiId())).toList(), inserted);
+            List<String> raced = newRecipes.stream()
+                    .map(Recipe::getOpenAiId)
+                    .filter(openAiId -> !inserted.containsKey(openAiId))
+                    .toList();
+            if (!raced.isEmpty()) {
+                recipeIds.putAll(findIdsByOpenAiIds(raced));
+            }
+        }
+
+        // 3. Historial: el índice único (recipe_id, user_id) descarta los pares que ya existen, también en carreras
+        List<Long> historyRecipeIds = new ArrayList<>();
+        List<Long> historyUserIds = new ArrayList<>();
+        for (PendingRecommendation recommendation : pending) {
+            if (!existingUsers.contains(recommendation.userId())) {
+                continue;
+            }
+            for (Recipe recipe : recommendation.recipes()) {
+                historyRecipeIds.add(recipeIds.get(recipe.getOpenAiId()));
+                historyUserIds.add(recommendation.userId());
+            }
+        }
+        jdbcTemplate.update("INSERT INTO user_recipe_history (recipe_id, user_id) " +
+                "SELECT DISTINCT p.recipe_id, p.user_id FROM unnest(?::bigint[], ?::bigint[]) AS p(recipe_id, user_id) " +
+                "ON CONFLICT (recipe_id, user_id) DO NOTHING",
+                historyRecipeIds.toArray(new Long[0]), historyUserIds.toArray(new Long[0]));
+        return recipeIds;
+    }
+
+    private Set<Long> findExistingUserIds(List<Long> userIds) {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM users WHERE id = ANY(?)", Long.class,
+                (Object) userIds.toArray(new Long[0])));
+    }
+
+    private Map<String, Long> findIdsByOpenAiIds(Collection<String> openAiIds) {
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, open_ai_id FROM recipes WHERE open_ai_id = ANY(?)",
+                rs -> {
+                    ids.putIfAbsent(rs.getString("open_ai_id"), rs.getLong("id"));
+                },
+                (Object) openAiIds.toArray(new String[0]));
+        return ids;
+    }
+
+    private Map<String, Long> insertRecipes(List<Recipe> recipes) {
+        StringJoiner values = new StringJoiner(", ", INSERT_RECIPE_COLUMNS, " ON CONFLICT (open_ai_id) DO NOTHING RETURNING id, open_ai_id");
+        List<Object> args = new ArrayList<>(recipes.size() * 8);
+        for (Recipe recipe : recipes) {
+            values.add(INSERT_RECIPE_VALUES);
+            args.add(recipe.getTitle());
+            args.add(recipe.getDescription());
+            args.add(recipe.getInstructions());
+            args.add(recipe.getPreparationTime());
+            args.add(recipe.getCategory());
+            args.add(recipe.getDifficulty());
+            args.add(recipe.getSource());
+            args.add(recipe.getOpenAiId());
+        }
+
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(values.toString(), rs -> {
+            ids.put(rs.getString("open_ai_id"), rs.getLong("id"));
+        }, args.toArray());
+        return ids;
+    }
+
+    private void insertElementCollections(List<Recipe> recipes, Map<String, Long> ids) {
+        List<Object[]> ingredientRows = new ArrayList<>();
+        List<Object[]> dietTagRows = new ArrayList<>();
+        List<Object[]> exclusionRows = new ArrayList<>();
+        for (Recipe recipe : recipes) {
+            Long recipeId = ids.get(recipe.getOpenAiId());
+            if (recipe.getIngredientNames() != null) {
+                recipe.getIngredientNames().forEach(name -> ingredientRows.add(new Object[]{recipeId, name}));
+            }
+            if (recipe.getDietTags() != null) {
+                recipe.getDietTags().forEach(tag -> dietTagRows.add(new Object[]{recipeId, tag}));
+            }
+            if (recipe.getExclusions() != null) {
+                recipe.getExclusions().forEach(exclusion -> exclusionRows.add(new Object[]{recipeId, exclusion}));
+            }
+        }
+        if (!ingredientRows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO recipe_ingredients_names (recipe_id, ingredient_name) VALUES (?, ?)", ingredientRows);
+        }
+        if (!dietTagRows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO recipe_diet_tags (recipe_id, diet_tag) VALUES (?, ?)", dietTagRows);
+        }
+        if (!exclusionRows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO recipe_exclusions (recipe_id, exclusion) VALUES (?, ?)", exclusionRows);
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package es.luigi.chefsitoLuigi.Repository;
 
 import es.luigi.chefsitoLuigi.Entity.Recipe;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface RecipeRepository extends JpaRepository<Recipe, Long> {
     Optional<Recipe> findByOpenAiId(String openAiId);
     List<Recipe> findByRecommendedToUsersId(Long userId); // Historial por usuario
+    // Respaldo si OpenAI no responde: primero los ids con LIMIT en SQL y luego esas recetas con sus ingredientes
+    // (con el grafo en la misma consulta Hibernate no puede aplicar el límite y pagina en memoria)
+    @Query(value = "SELECT recipe_id FROM user_recipe_history WHERE user_id = :userId ORDER BY recipe_id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findLatestRecommendedIds(@Param("userId") Long userId, @Param("limit") int limit);
+    @EntityGraph(attributePaths = "ingredientNames")
+    List<Recipe> findByIdInOrderByIdDesc(Collection<Long> ids);
+    @EntityGraph(attributePaths = {"ingredientNames", "dietTags", "exclusions"})
+    List<Recipe> findAllForMatchingBy(); // Índice local de recetas
     List<Recipe> findByCategory(String category);
     List<Recipe> findByDifficulty(String difficulty);
     List<Recipe> findByPreparationTimeLessThanEqual(Integer maxTime);
@@ -0,0 +1,35 @@
+package es.luigi.chefsitoLuigi.Repository;
+
+import es.luigi.chefsitoLuigi.Entity.RecommendationCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface RecommendationCacheRepository extends JpaRepository<RecommendationCacheEntry, String> {
+    Optional<RecommendationCacheEntry> findByCacheKeyAndExpiresAtAfter(String cacheKey, Instant now);
+
+    // Upsert atómico: varias instancias pueden escribir la misma clave a la vez
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO recommendation_cache (cache_key, payload, created_at, expires_at) " +
+            "VALUES (:cacheKey, :payload, :createdAt, :expiresAt) " +
+            "ON CONFLICT (cache_key) DO UPDATE SET payload = EXCLUDED.payload, " +
+            "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at", nativeQuery = true)
+    void upsert(@Param("cacheKey") String cacheKey, @Param("payload") String payload,
+                @Param("createdAt") Instant createdAt, @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RecommendationCacheEntry e WHERE e.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RecommendationCacheEntry e WHERE e.cacheKey = :cacheKey")
+    void deleteByKey(@Param("cacheKey") String cacheKey);
+}
@@ -2,10 +2,23 @@ package es.luigi.chefsitoLuigi.Repository;
 
 import es.luigi.chefsitoLuigi.Entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Versión de despensa y perfil compartida entre instancias (clave de UserRecommendationCache)
+    @Query(value = "SELECT recommendation_version FROM users WHERE id = :userId", nativeQuery = true)
+    Optional<Long> findRecommendationVersion(@Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE users SET recommendation_version = recommendation_version + 1 WHERE id = :userId", nativeQuery = true)
+    int bumpRecommendationVersion(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * BK-tree de términos bajo la distancia de Damerau-Levenshtein (variante OSA: inserción,
+ * borrado, sustitución y transposición de letras contiguas). Cada término guarda los ids
+ * que lo contienen. Por la desigualdad triangular, una búsqueda con tope k solo baja a los
+ * hijos cuya arista está en [d - k, d + k], así que visita una fracción pequeña del árbol.
+ * Se construye una vez y después solo se lee (es seguro compartirlo entre hilos).
+ */
+public final class BkTree {
+
+    private Node root;
+    private int size;
+
+    /** Árbol con cada término y sus ids; los términos vacíos se ignoran. */
+    public static BkTree build(Map<String, ? extends Collection<Long>> terms) {
+        BkTree tree = new BkTree();
+        terms.forEach((term, ids) -> {
+            if (term != null && !term.isEmpty() && !ids.isEmpty()) {
+                tree.add(term, ids.stream().mapToLong(Long::longValue).toArray());
+            }
+        });
+        return tree;
+    }
+
+    private void add(String term, long[] ids) {
+        size++;
+        if (root == null) {
+            root = new Node(term, ids);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(term, node.term, Integer.MAX_VALUE);
+            if (distance == 0) {
+                node.ids = ids;
+                size--;
+                return;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.setChild(distance, new Node(term, ids));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /** Entrega los ids de todos los términos a distancia <= maxDistance de la consulta. */
+    public void search(String query, int maxDistance, LongConsumer onMatch) {
+        if (root == null || query.isEmpty() || maxDistance < 0) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // Más allá de la arista mayor + k ningún hijo puede servir: basta la distancia acotada
+            int distance = distance(query, node.term, node.children.length + maxDistance);
+            if (distance <= maxDistance) {
+                for (long id : node.ids) {
+                    onMatch.accept(id);
+                }
+            }
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int edge = from; edge <= to; edge++) {
+                if (node.children[edge] != null) {
+                    pending.push(node.children[edge]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Distancia de Damerau-Levenshtein (OSA) acotada: en cuanto supera max devuelve max + 1
+     * sin terminar la matriz. Usa tres filas, sin reservar la matriz completa.
+     */
+    public static int distance(String a, String b, int max) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        int n = a.length();
+        int m = b.length();
+        int bound = max == Integer.MAX_VALUE ? max : max + 1;
+        if (Math.abs(n - m) > max) {
+            return bound;
+        }
+        if (n == 0 || m == 0) {
+            return Math.min(Math.max(n, m), bound);
+        }
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return bound;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], bound);
+    }
+
+    private static final class Node {
+        private final String term;
+        private long[] ids;
+        // Hijos indexados por distancia al término del nodo (casi siempre pocas posiciones)
+        private Node[] children = new Node[0];
+
+        Node(String term, long[] ids) {
+            this.term = term;
+            this.ids = ids;
+        }
+
+        Node child(int distance) {
+            return distance < children.length ? children[distance] : null;
+        }
+
+        void setChild(int distance, Node child) {
+            if (distance >= children.length) {
+                children = Arrays.copyOf(children, distance + 1);
+            }
+            children[distance] = child;
+        }
+    }
+}
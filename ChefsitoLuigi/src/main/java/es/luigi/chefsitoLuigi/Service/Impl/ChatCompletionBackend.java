@@ -0,0 +1,32 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Punto de extensión para las llamadas de chat a OpenAI.
+ * LIVE llama a la API real (OpenAiChatClient), RECORD además guarda cada petición/respuesta
+ * en disco y REPLAY las sirve desde disco sin red (pruebas de carga y CI).
+ */
+public interface ChatCompletionBackend {
+
+    enum Mode { LIVE, RECORD, REPLAY }
+
+    /**
+     * Chat completion completo. Devuelve el contenido del primer mensaje ("" si no hay).
+     */
+    String complete(Map<String, Object> requestBody);
+
+    /**
+     * Chat completion con stream=true: entrega cada fragmento de contenido según llega.
+     */
+    void stream(Map<String, Object> requestBody, Consumer<String> onContent);
+
+    default boolean isConfigured() {
+        return true;
+    }
+
+    default boolean isCircuitOpen() {
+        return false;
+    }
+}
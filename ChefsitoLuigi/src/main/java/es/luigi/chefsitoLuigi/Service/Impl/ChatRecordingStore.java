@@ -0,0 +1,90 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Grabaciones de llamadas a OpenAI en disco: un fichero JSON por petición, nombrado con
+ * el SHA-256 de la petición canónica (claves ordenadas), para que la misma petición
+ * siempre encuentre la misma respuesta.
+ */
+public class ChatRecordingStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatRecordingStore.class);
+
+    public enum Kind { COMPLETE, STREAM }
+
+    /** Una respuesta no-stream se guarda como un único fragmento. */
+    public record Recording(String key, Kind kind, Map<String, Object> request, List<String> chunks) {
+    }
+
+    private final Path directory;
+    private final ObjectMapper canonicalMapper;
+    private final ObjectMapper fileMapper;
+
+    public ChatRecordingStore(Path directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.fileMapper = canonicalMapper.copy().enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    public String keyFor(Kind kind, Map<String, Object> request) {
+        try {
+            byte[] canonical = (kind + ":" + canonicalMapper.writeValueAsString(request)).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void save(Recording recording) {
+        try {
+            Files.createDirectories(directory);
+            // Escritura atómica: un replay concurrente nunca ve un fichero a medias
+            Path temp = Files.createTempFile(directory, recording.key(), ".tmp");
+            fileMapper.writeValue(temp.toFile(), recording);
+            Files.move(temp, directory.resolve(recording.key() + ".json"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<Recording> loadAll() {
+        if (!Files.isDirectory(directory)) {
+            logger.warn("⚠️ Directorio de grabaciones {} inexistente", directory.toAbsolutePath());
+            return List.of();
+        }
+        List<Recording> recordings = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.toString().endsWith(".json")).sorted().forEach(file -> {
+                try {
+                    recordings.add(fileMapper.readValue(file.toFile(), Recording.class));
+                } catch (IOException e) {
+                    logger.warn("⚠️ Grabación ilegible {}: {}", file.getFileName(), e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return recordings;
+    }
+}
@@ -3,12 +3,16 @@ package es.luigi.chefsitoLuigi.Service.Impl;
 import lombok.Builder;
 import lombok.Data;
 
+import java.time.LocalDate;
+
 @Data
 @Builder
 public class EnhancedIngredientInfo {
+    private Long ingredientId;
     private String englishName;
     private String spanishName;
     private String unit;
     private Double quantity;
     private String imageUrl;
+    private LocalDate expiryDate;
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Parser incremental del array JSON de recetas que devuelve OpenAI en modo stream.
+ * Recibe el texto por fragmentos y devuelve cada receta en cuanto se cierra su objeto.
+ * No es thread-safe: se usa una instancia por respuesta.
+ */
+public class IncrementalRecipeArrayParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalRecipeArrayParser.class);
+
+    private final ObjectMapper objectMapper;
+    private final Predicate<JsonNode> validator;
+    private final StringBuilder currentObject = new StringBuilder();
+    private boolean arrayStarted;
+    private boolean arrayClosed;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private int discarded;
+
+    public IncrementalRecipeArrayParser(ObjectMapper objectMapper) {
+        this(objectMapper, node -> true);
+    }
+
+    /** validator decide si cada receta completa se acepta antes de convertirla. */
+    public IncrementalRecipeArrayParser(ObjectMapper objectMapper, Predicate<JsonNode> validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public List<OpenAiRecipeResponse> feed(String chunk) {
+        List<OpenAiRecipeResponse> completed = new ArrayList<>();
+        if (chunk == null || arrayClosed) {
+            return completed;
+        }
+
+        for (int i = 0; i < chunk.length() && !arrayClosed; i++) {
+            char c = chunk.charAt(i);
+
+            // Todo lo anterior al '[' (```json, texto libre...) se ignora
+            if (!arrayStarted) {
+                arrayStarted = c == '[';
+                continue;
+            }
+
+            boolean capturing = depth > 0;
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+                capturing = true;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth < 0) {
+                    arrayClosed = true;
+                    break;
+                }
+            }
+
+            if (capturing) {
+                currentObject.append(c);
+            }
+            if (capturing && depth == 0) {
+                parseObject().ifPresent(completed::add);
+                currentObject.setLength(0);
+            }
+        }
+        return completed;
+    }
+
+    public boolean isComplete() {
+        return arrayClosed;
+    }
+
+    /** Recetas descartadas por JSON inválido. */
+    public int getDiscarded() {
+        return discarded;
+    }
+
+    private Optional<OpenAiRecipeResponse> parseObject() {
+        try {
+            JsonNode node = objectMapper.readTree(currentObject.toString());
+            if (!validator.test(node)) {
+                discarded++;
+                return Optional.empty();
+            }
+            return Optional.of(objectMapper.treeToValue(node, OpenAiRecipeResponse.class));
+        } catch (Exception e) {
+            discarded++;
+            logger.warn("⚠️ Receta descartada en stream por JSON inválido: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
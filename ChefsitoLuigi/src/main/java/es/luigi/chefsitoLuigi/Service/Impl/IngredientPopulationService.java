@@ -9,6 +9,8 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+
 @Service
 @RequiredArgsConstructor
 public class IngredientPopulationService {
@@ -17,9 +19,12 @@ public class IngredientPopulationService {
 
     private final IngredientRepository ingredientRepository;
     private final IngredientTranslationService translationService;
+    private final IngredientSearchIndex searchIndex;
 
     @EventListener(ApplicationReadyEvent.class)
     public void populateIngredientsOnStartup() {
+        backfillFoldedNames();
+
         if (ingredientRepository.count() == 0) {
             logger.info("🏗️ Iniciando poblado automático de ingredientes...");
 
@@ -51,6 +56,61 @@ public class IngredientPopulationService {
         }
     }
 
+    /**
+     * Rellena name_folded/name_es_folded en filas creadas antes de esas columnas (sin Flyway,
+     * ddl-auto las añade vacías). Si varios nombres se pliegan igual se fusionan como en V5:
+     * se conserva el más antiguo (menor id), la despensa y las recetas pasan a apuntarle
+     * y los repetidos se borran antes de guardar, para no chocar con el índice único.
+     */
+    void backfillFoldedNames() {
+        List<Ingredient> pending = ingredientRepository.findByNameFoldedIsNull();
+        if (pending.isEmpty()) {
+            return;
+        }
+        logger.info("🔤 Plegando nombres de {} ingredientes existentes...", pending.size());
+        pending.forEach(Ingredient::foldNames);
+
+        Map<String, List<Ingredient>> byFolded = new HashMap<>();
+        for (Ingredient existing : ingredientRepository.findByNameFoldedIn(
+                pending.stream().map(Ingredient::getNameFolded).toList())) {
+            byFolded.computeIfAbsent(existing.getNameFolded(), folded -> new ArrayList<>()).add(existing);
+        }
+        for (Ingredient ingredient : pending) {
+            byFolded.computeIfAbsent(ingredient.getNameFolded(), folded -> new ArrayList<>()).add(ingredient);
+        }
+
+        Set<Ingredient> pendingSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        pendingSet.addAll(pending);
+        List<Ingredient> toSave = new ArrayList<>();
+        List<Long> merged = new ArrayList<>();
+        boolean legacyRecipeIngredients = ingredientRepository.hasLegacyRecipeIngredients();
+        for (List<Ingredient> group : byFolded.values()) {
+            Ingredient keep = Collections.min(group, Comparator.comparing(Ingredient::getId));
+            List<Long> duplicateIds = group.stream()
+                    .filter(ingredient -> ingredient != keep)
+                    .map(Ingredient::getId)
+                    .toList();
+            if (!duplicateIds.isEmpty()) {
+                ingredientRepository.repointPantryItems(duplicateIds, keep.getId());
+                ingredientRepository.repointRecipeIngredientsRel(duplicateIds, keep.getId());
+                if (legacyRecipeIngredients) {
+                    ingredientRepository.repointLegacyRecipeIngredients(duplicateIds, keep.getId());
+                }
+                logger.warn("🔀 Ingredientes duplicados {} fusionados en '{}' (id {})", duplicateIds, keep.getName(), keep.getId());
+                merged.addAll(duplicateIds);
+            }
+            if (pendingSet.contains(keep)) {
+                toSave.add(keep);
+            }
+        }
+        if (!merged.isEmpty()) {
+            ingredientRepository.deleteAllByIdInBatch(merged);
+            merged.forEach(searchIndex::remove);
+        }
+        ingredientRepository.saveAll(toSave);
+        logger.info("✅ Nombres plegados: {} ingredientes, {} duplicados fusionados", toSave.size(), merged.size());
+    }
+
     // Método para población manual (mantener compatibilidad)
     public void populateIngredientsFromMealDB() {
         if (ingredientRepository.count() == 0) {
@@ -81,23 +141,24 @@ public class IngredientPopulationService {
                     new Object[]{"Bread", "Pan", "Grains"}
             );
 
+            List<Ingredient> missing = new ArrayList<>();
             for (Object[] ingredientData : basicIngredients) {
                 String englishName = (String) ingredientData[0];
                 String spanishName = (String) ingredientData[1];
                 String category = (String) ingredientData[2];
 
                 if (ingredientRepository.findByNameIgnoreCase(englishName).isEmpty()) {
-                    Ingredient ingredient = Ingredient.builder()
+                    missing.add(Ingredient.builder()
                             .name(englishName)
                             .nameEs(spanishName)
                             .unit("units")
                             .quantity(1.0)
                             .imageUrl("https://www.themealdb.com/images/ingredients/" + englishName + ".png")
-                            .build();
-
-                    ingredientRepository.save(ingredient);
+                            .build());
                 }
             }
+            // Un solo guardado y una sola publicación del índice para todo el lote
+            searchIndex.upsertAll(ingredientRepository.saveAll(missing));
 
             logger.info("✅ Ingredientes básicos cargados");
         } catch (Exception e) {
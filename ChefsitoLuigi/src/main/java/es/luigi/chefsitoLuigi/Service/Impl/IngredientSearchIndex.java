@@ -0,0 +1,441 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import es.luigi.chefsitoLuigi.Dto.IngredientDto;
+import es.luigi.chefsitoLuigi.Entity.Ingredient;
+import es.luigi.chefsitoLuigi.Repository.IngredientRepository;
+import es.luigi.chefsitoLuigi.Repository.PantryItemRepository;
+import es.luigi.chefsitoLuigi.Util.TextNormalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Índice residente del catálogo de ingredientes para la búsqueda por teclas.
+ * Guarda por ingrediente los nombres EN/ES ya plegados y su clave fonética, así que una
+ * consulta solo normaliza el texto buscado y recorre un array sin tocar la base de datos.
+ * Los typos se resuelven con un BK-tree (Damerau-Levenshtein acotado) sobre los nombres y
+ * sus palabras, con un tope de ediciones que crece con la longitud de la consulta, y el
+ * autocompletado con un trie radix que guarda en cada nodo sus mejores sugerencias.
+ * Se construye al arrancar y se mantiene con upsert/remove desde quien escribe en el catálogo;
+ * el refresco periódico corrige cualquier escritura que no haya pasado por aquí.
+ * Cada escritura vuelve a publicar el índice entero (orden, BK-tree y trie, O(n log n)), así
+ * que las cargas masivas deben pasar por upsertAll para publicar una sola vez por lote.
+ */
+@Component
+@RequiredArgsConstructor
+public class IngredientSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngredientSearchIndex.class);
+
+    // Sinónimos EN -> ES para que "chicken" y "pollo" compartan clave fonética
+    private static final String[][] PHONETIC_SYNONYMS = {
+            {"tomato", "tomate"}, {"potato", "papa"}, {"onion", "cebolla"}, {"garlic", "ajo"},
+            {"chicken", "pollo"}, {"beef", "carne"}, {"pork", "cerdo"}, {"cheese", "queso"},
+            {"milk", "leche"}, {"egg", "huevo"}, {"fish", "pescado"}, {"rice", "arroz"},
+            {"bread", "pan"}, {"flour", "harina"}, {"sugar", "azucar"}, {"salt", "sal"},
+            {"pepper", "pimienta"}, {"oil", "aceite"}, {"butter", "mantequilla"}, {"lemon", "limon"},
+            {"lime", "lima"}, {"apple", "manzana"}, {"banana", "platano"}, {"orange", "naranja"}
+    };
+
+    // Niveles de coincidencia, de mejor a peor
+    static final int TIER_EXACT = 0;
+    static final int TIER_PREFIX = 1;
+    static final int TIER_SUBSTRING = 2;
+    static final int TIER_PHONETIC = 3;
+    static final int TIER_FUZZY = 4;
+    private static final int NO_MATCH = 5;
+
+    // Cabeza del montículo = el peor de los K mejores: peor nivel y, a igualdad, peor rango
+    private static final Comparator<Hit> WORST_FIRST =
+            Comparator.comparingInt(Hit::tier).thenComparingInt(Hit::rank).reversed();
+
+    // Palabras más cortas no aportan a la búsqueda difusa ni al autocompletado ("de", "al"...)
+    private static final int MIN_FUZZY_WORD_LENGTH = 3;
+
+    private final IngredientRepository ingredientRepository;
+    private final PantryItemRepository pantryItemRepository;
+    private final MeterRegistry meterRegistry;
+
+    // Longitud mínima de la consulta para tolerar 1, 2, ... ediciones (Damerau-Levenshtein)
+    @Value("${ingredients.search.fuzzy.edit-length-thresholds:4,8}")
+    private List<Integer> editLengthThresholds;
+
+    // Sugerencias precalculadas por nodo del trie de autocompletado
+    @Value("${ingredients.autocomplete.top-k:10}")
+    private int autocompleteTopK;
+
+    // Escrituras bajo el lock; las búsquedas solo leen la instantánea publicada
+    private final Object lock = new Object();
+    private final TreeMap<Long, IndexedIngredient> byId = new TreeMap<>();
+    // Cambios aplicados mientras se recarga el catálogo (null = borrado), para no perderlos al publicar
+    private Map<Long, IndexedIngredient> writesDuringRebuild;
+    // Peso de cada ingrediente para ordenar sugerencias: en cuántas despensas está
+    private Map<Long, Long> weights = Map.of();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private Timer searchTimer;
+    private Timer autocompleteTimer;
+    private Counter fuzzyMatchCounter;
+
+    @PostConstruct
+    void init() {
+        searchTimer = meterRegistry.timer("ingredients.search");
+        autocompleteTimer = meterRegistry.timer("ingredients.autocomplete");
+        fuzzyMatchCounter = meterRegistry.counter("ingredients.search.fuzzy_matches");
+        meterRegistry.gauge("ingredients.search.indexed", this, index -> index.snapshot.byRank.length);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ingredients.search-index.refresh-interval-ms:600000}",
+            initialDelayString = "${ingredients.search-index.refresh-interval-ms:600000}")
+    public void rebuild() {
+        try {
+            long start = System.nanoTime();
+            synchronized (lock) {
+                writesDuringRebuild = new HashMap<>();
+            }
+            List<Ingredient> catalog = ingredientRepository.findAll();
+            Map<Long, Long> freshWeights = new HashMap<>();
+            for (Object[] row : pantryItemRepository.countUsesByIngredient()) {
+                freshWeights.put((Long) row[0], (Long) row[1]);
+            }
+            TreeMap<Long, IndexedIngredient> fresh = new TreeMap<>();
+            for (Ingredient ingredient : catalog) {
+                if (ingredient.getId() != null && ingredient.getName() != null) {
+                    fresh.put(ingredient.getId(), IndexedIngredient.of(ingredient));
+                }
+            }
+            synchronized (lock) {
+                writesDuringRebuild.forEach((id, entry) -> {
+                    if (entry == null) {
+                        fresh.remove(id);
+                    } else {
+                        fresh.put(id, entry);
+                    }
+                });
+                writesDuringRebuild = null;
+                byId.clear();
+                byId.putAll(fresh);
+                weights = freshWeights;
+                publish();
+            }
+            logger.info("📚 Índice de búsqueda de ingredientes reconstruido: {} ingredientes, {} términos difusos en {} ms",
+                    snapshot.byRank.length, snapshot.fuzzy.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            synchronized (lock) {
+                writesDuringRebuild = null;
+            }
+            logger.error("❌ Error reconstruyendo el índice de ingredientes: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Alta o cambio de un ingrediente suelto: reconstruye el índice completo. */
+    public void upsert(Ingredient ingredient) {
+        if (ingredient == null || ingredient.getId() == null || ingredient.getName() == null) {
+            return;
+        }
+        IndexedIngredient entry = IndexedIngredient.of(ingredient);
+        synchronized (lock) {
+            byId.put(ingredient.getId(), entry);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.put(ingredient.getId(), entry);
+            }
+            publish();
+        }
+    }
+
+    /** Altas o cambios en bloque con una sola reconstrucción. */
+    public void upsertAll(Collection<Ingredient> ingredients) {
+        synchronized (lock) {
+            for (Ingredient ingredient : ingredients) {
+                if (ingredient.getId() == null || ingredient.getName() == null) {
+                    continue;
+                }
+                IndexedIngredient entry = IndexedIngredient.of(ingredient);
+                byId.put(ingredient.getId(), entry);
+                if (writesDuringRebuild != null) {
+                    writesDuringRebuild.put(ingredient.getId(), entry);
+                }
+            }
+            publish();
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        synchronized (lock) {
+            byId.remove(id);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.put(id, null);
+            }
+            publish();
+        }
+    }
+
+    /**
+     * Los limit mejores ingredientes para la consulta, por nivel: nombre EN/ES exacto, prefijo
+     * (de nombre o de palabra), subcadena, clave fonética y, por último, typos. Dentro de cada
+     * nivel, los más usados en despensas primero.
+     * El recorrido va en orden de rango, así que a igual nivel quien entra antes gana: con el
+     * montículo lleno solo interesa un nivel mejor que el peor guardado (las comprobaciones más
+     * caras se saltan) y, si está lleno de exactos, se para. El BK-tree solo se consulta si no
+     * hay limit coincidencias mejores.
+     */
+    public List<IngredientDto> search(String query, int limit) {
+        return searchTimer.record(() -> {
+            if (limit <= 0) {
+                return List.<IngredientDto>of();
+            }
+            Snapshot current = snapshot;
+            String folded = TextNormalizer.fold(query);
+            String phonetic = phoneticKey(folded);
+            PriorityQueue<Hit> heap = new PriorityQueue<>(Math.min(limit, 64), WORST_FIRST);
+
+            for (int rank = 0; rank < current.byRank.length; rank++) {
+                int worstAllowed = heap.size() < limit ? TIER_PHONETIC : heap.peek().tier() - 1;
+                if (worstAllowed < TIER_EXACT) {
+                    break;
+                }
+                int tier = current.byRank[rank].tier(folded, phonetic, worstAllowed);
+                if (tier <= worstAllowed) {
+                    offer(heap, new Hit(tier, rank), limit);
+                }
+            }
+
+            int maxEdits = maxEditsFor(folded.length());
+            if (heap.size() < limit && maxEdits > 0) {
+                // Sin desalojos hasta aquí: el montículo tiene todas las coincidencias mejores
+                BitSet matched = new BitSet(current.byRank.length);
+                heap.forEach(hit -> matched.set(hit.rank()));
+                current.fuzzy.search(folded, maxEdits, rank -> {
+                    if (!matched.get((int) rank)) {
+                        matched.set((int) rank);
+                        fuzzyMatchCounter.increment();
+                        offer(heap, new Hit(TIER_FUZZY, (int) rank), limit);
+                    }
+                });
+            }
+
+            Hit[] hits = heap.toArray(new Hit[0]);
+            Arrays.sort(hits, WORST_FIRST.reversed());
+            List<IngredientDto> results = new ArrayList<>(hits.length);
+            for (Hit hit : hits) {
+                results.add(current.byRank[hit.rank()].toDto());
+            }
+            return results;
+        });
+    }
+
+    private static void offer(PriorityQueue<Hit> heap, Hit hit, int limit) {
+        if (heap.size() < limit) {
+            heap.add(hit);
+        } else if (WORST_FIRST.compare(hit, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(hit);
+        }
+    }
+
+    /**
+     * Sugerencias para lo que el usuario lleva escrito: ingredientes con un nombre EN o ES
+     * (o una palabra de él) que empieza por el prefijo, los más usados en despensas primero.
+     */
+    public List<IngredientDto> autocomplete(String prefix, int limit) {
+        return autocompleteTimer.record(() -> {
+            Snapshot current = snapshot;
+            String folded = TextNormalizer.fold(prefix);
+            if (folded.isEmpty() || limit <= 0) {
+                return List.<IngredientDto>of();
+            }
+            int[] ranks = current.autocomplete.complete(folded, Math.min(limit, autocompleteTopK));
+            List<IngredientDto> results = new ArrayList<>(ranks.length);
+            for (int rank : ranks) {
+                results.add(current.byRank[rank].toDto());
+            }
+            return results;
+        });
+    }
+
+    public int size() {
+        return snapshot.byRank.length;
+    }
+
+    /** Ediciones toleradas para una consulta de esta longitud (0 = solo coincidencia exacta). */
+    int maxEditsFor(int queryLength) {
+        int edits = 0;
+        for (int threshold : editLengthThresholds) {
+            if (queryLength >= threshold) {
+                edits++;
+            }
+        }
+        return edits;
+    }
+
+    /**
+     * Se llama con el lock tomado. Ni el BK-tree ni el trie admiten borrados, así que se rehacen
+     * junto al array y se publican de una vez: una búsqueda nunca ve estructuras mezcladas.
+     */
+    private void publish() {
+        // Rango global: más despensas primero; a igualdad, el nombre más corto ("Tomato" antes que "Tomato Puree")
+        IndexedIngredient[] byRank = byId.values().toArray(new IndexedIngredient[0]);
+        Arrays.sort(byRank, Comparator
+                .comparingLong((IndexedIngredient entry) -> -weights.getOrDefault(entry.id(), 0L))
+                .thenComparingInt(entry -> entry.nameFolded().length())
+                .thenComparing(IndexedIngredient::nameFolded));
+        // Tanto el BK-tree como el trie guardan rangos, no ids
+        Map<String, List<Long>> terms = new HashMap<>();
+        RadixTrie.Builder trie = RadixTrie.builder();
+        for (int rank = 0; rank < byRank.length; rank++) {
+            byRank[rank].collectTerms(terms, rank);
+            for (String key : byRank[rank].prefixKeys()) {
+                trie.add(key, rank);
+            }
+        }
+
+        snapshot = new Snapshot(byRank, BkTree.build(terms), trie.build(autocompleteTopK));
+    }
+
+    private record Snapshot(IndexedIngredient[] byRank, BkTree fuzzy, RadixTrie autocomplete) {
+        static final Snapshot EMPTY = new Snapshot(new IndexedIngredient[0], BkTree.build(Map.of()),
+                RadixTrie.builder().build(1));
+    }
+
+    private record Hit(int tier, int rank) {
+    }
+
+    /** Nombre plegado con los sinónimos traducidos y solo letras: "Chicken Breast" -> "pollobreast". */
+    static String phoneticKey(String folded) {
+        String text = folded;
+        for (String[] synonym : PHONETIC_SYNONYMS) {
+            if (text.contains(synonym[0])) {
+                text = text.replace(synonym[0], synonym[1]);
+            }
+        }
+        StringBuilder key = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Entrada inmutable del índice: datos del ingrediente más sus formas normalizadas.
+     */
+    private record IndexedIngredient(Long id, String name, String nameEs, String unit, Double quantity,
+                                     String imageUrl, LocalDate expiryDate,
+                                     String nameFolded, String nameEsFolded, String nameKey, String nameEsKey) {
+
+        static IndexedIngredient of(Ingredient ingredient) {
+            String nameFolded = TextNormalizer.fold(ingredient.getName());
+            String nameEsFolded = ingredient.getNameEs() != null ? TextNormalizer.fold(ingredient.getNameEs()) : null;
+            return new IndexedIngredient(ingredient.getId(), ingredient.getName(), ingredient.getNameEs(),
+                    ingredient.getUnit(), ingredient.getQuantity(), ingredient.getImageUrl(), ingredient.getExpiryDate(),
+                    nameFolded, nameEsFolded,
+                    phoneticKey(nameFolded), nameEsFolded != null ? phoneticKey(nameEsFolded) : null);
+        }
+
+        // Mejor nivel de texto o fonético; no se prueba nada peor que worstAllowed
+        int tier(String folded, String phonetic, int worstAllowed) {
+            int tier = textTier(nameFolded, folded);
+            if (nameEsFolded != null && tier > TIER_EXACT) {
+                tier = Math.min(tier, textTier(nameEsFolded, folded));
+            }
+            if (tier > TIER_SUBSTRING && worstAllowed >= TIER_PHONETIC
+                    && (nameKey.contains(phonetic) || (nameEsKey != null && nameEsKey.contains(phonetic)))) {
+                tier = TIER_PHONETIC;
+            }
+            return tier;
+        }
+
+        private static int textTier(String name, String folded) {
+            if (name.equals(folded)) {
+                return TIER_EXACT;
+            }
+            int at = name.indexOf(folded);
+            if (at < 0) {
+                return NO_MATCH;
+            }
+            for (; at >= 0; at = name.indexOf(folded, at + 1)) {
+                if (at == 0 || name.charAt(at - 1) == ' ') {
+                    return TIER_PREFIX;
+                }
+            }
+            return TIER_SUBSTRING;
+        }
+
+        // Términos para la búsqueda difusa: cada nombre completo y sus palabras con sustancia
+        void collectTerms(Map<String, List<Long>> terms, int rank) {
+            addTerms(terms, nameFolded, rank);
+            if (nameEsFolded != null) {
+                addTerms(terms, nameEsFolded, rank);
+            }
+        }
+
+        // Claves del autocompletado: cada nombre y cada palabra suya desde la que tenga sentido empezar
+        List<String> prefixKeys() {
+            List<String> keys = new ArrayList<>();
+            addPrefixKeys(keys, nameFolded);
+            if (nameEsFolded != null) {
+                addPrefixKeys(keys, nameEsFolded);
+            }
+            return keys;
+        }
+
+        private static void addPrefixKeys(List<String> keys, String folded) {
+            keys.add(folded);
+            for (int space = folded.indexOf(' '); space >= 0; space = folded.indexOf(' ', space + 1)) {
+                String rest = folded.substring(space + 1);
+                int end = rest.indexOf(' ');
+                if ((end < 0 ? rest.length() : end) >= MIN_FUZZY_WORD_LENGTH) {
+                    keys.add(rest);
+                }
+            }
+        }
+
+        private static void addTerms(Map<String, List<Long>> terms, String folded, long rank) {
+            addTerm(terms, folded, rank);
+            if (folded.indexOf(' ') >= 0) {
+                for (String word : folded.split(" ")) {
+                    if (word.length() >= MIN_FUZZY_WORD_LENGTH) {
+                        addTerm(terms, word, rank);
+                    }
+                }
+            }
+        }
+
+        private static void addTerm(Map<String, List<Long>> terms, String term, long rank) {
+            List<Long> ranks = terms.computeIfAbsent(term, key -> new ArrayList<>(1));
+            if (ranks.isEmpty() || ranks.get(ranks.size() - 1) != rank) {
+                ranks.add(rank);
+            }
+        }
+
+        // Copia nueva por resultado: quien la recibe puede modificarla sin tocar el índice
+        IngredientDto toDto() {
+            return IngredientDto.builder()
+                    .id(id)
+                    .name(name)
+                    .nameEs(nameEs)
+                    .unit(unit)
+                    .quantity(quantity)
+                    .imageUrl(imageUrl)
+                    .expiryDate(expiryDate)
+                    .build();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package es.luigi.chefsitoLuigi.Service.Impl;
 
 import es.luigi.chefsitoLuigi.Dto.IngredientDto;
 import es.luigi.chefsitoLuigi.Entity.Ingredient;
+import es.luigi.chefsitoLuigi.Exception.ResourceAlreadyExistsException;
 import es.luigi.chefsitoLuigi.Exception.ResourceNotFoundException;
 import es.luigi.chefsitoLuigi.Mapper.IngredientMapper;
 import es.luigi.chefsitoLuigi.Repository.IngredientRepository;
@@ -17,11 +18,17 @@ public class IngredientServiceImpl implements IngredientService {
 
     private final IngredientRepository ingredientRepository;
     private final IngredientMapper ingredientMapper;
+    private final IngredientSearchIndex searchIndex;
 
     @Override
     public IngredientDto create(IngredientDto dto) {
+        // El índice único sobre name_folded rechazaría variantes de mayúsculas o tildes con un 500
+        ingredientRepository.findByNameIgnoreCase(dto.getName()).ifPresent(duplicate -> {
+            throw new ResourceAlreadyExistsException("Ingredient", "name", duplicate.getName());
+        });
         Ingredient entity = ingredientMapper.toEntity(dto);
         Ingredient saved = ingredientRepository.save(entity);
+        searchIndex.upsert(saved);
         return ingredientMapper.toDto(saved);
     }
 
@@ -29,12 +36,18 @@ public class IngredientServiceImpl implements IngredientService {
     public IngredientDto update(Long id, IngredientDto dto) {
         Ingredient existing = ingredientRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Ingredient", "id", id));
+        ingredientRepository.findByNameIgnoreCase(dto.getName())
+                .filter(other -> !other.getId().equals(id))
+                .ifPresent(duplicate -> {
+                    throw new ResourceAlreadyExistsException("Ingredient", "name", duplicate.getName());
+                });
         existing.setName(dto.getName());
         existing.setQuantity(dto.getQuantity());
         existing.setUnit(dto.getUnit());
         existing.setImageUrl(dto.getImageUrl());
         existing.setExpiryDate(dto.getExpiryDate());
         Ingredient saved = ingredientRepository.save(existing);
+        searchIndex.upsert(saved);
         return ingredientMapper.toDto(saved);
     }
 
@@ -54,5 +67,6 @@ public class IngredientServiceImpl implements IngredientService {
     public void delete(Long id) {
         ingredientRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Ingredient", "id", id));
         ingredientRepository.deleteById(id);
+        searchIndex.remove(id);
     }
 }
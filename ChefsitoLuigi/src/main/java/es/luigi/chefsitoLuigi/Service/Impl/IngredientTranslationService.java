@@ -2,13 +2,16 @@ package es.luigi.chefsitoLuigi.Service.Impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.IngredientTranslation;
 import es.luigi.chefsitoLuigi.Entity.Ingredient;
 import es.luigi.chefsitoLuigi.Repository.IngredientRepository;
+import es.luigi.chefsitoLuigi.Util.JsonSchemas;
+import es.luigi.chefsitoLuigi.Util.TextNormalizer;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -20,15 +23,24 @@ public class IngredientTranslationService {
 
     private static final Logger logger = LoggerFactory.getLogger(IngredientTranslationService.class);
 
+    // Un mapa no es expresable en modo estricto: se pide un array de pares {en, es}
+    private static final Map<String, Object> TRANSLATION_SCHEMA = JsonSchemas.forClass(IngredientTranslation.class, Set.of());
+    private static final Map<String, Object> RESPONSE_FORMAT =
+            JsonSchemas.responseFormat("translations", JsonSchemas.arrayWrapper("translations", TRANSLATION_SCHEMA));
+
     private final IngredientRepository ingredientRepository;
+    @Qualifier("restTemplate")
     private final RestTemplate restTemplate;
+    private final ChatCompletionBackend chatClient;
+    private final LlmRateLimiter rateLimiter;
     private final ObjectMapper objectMapper;
+    private final IngredientSearchIndex searchIndex;
 
-    @Value("${openai.api.key}")
-    private String openaiApiKey;
+    @Value("${openai.model:gpt-4o-mini}")
+    private String model;
 
-    @Value("${openai.api.url}")
-    private String openaiApiUrl;
+    @Value("${openai.structured-output.enabled:true}")
+    private boolean structuredOutput;
 
     public void translateAndSaveIngredients() {
         try {
@@ -108,7 +120,10 @@ public class IngredientTranslationService {
                 Map<String, String> batchTranslations = translateBatch(batch);
                 allTranslations.putAll(batchTranslations);
 
-                // Pequeña pausa entre lotes para evitar rate limiting
+                // Pequeña pausa entre lotes para evitar rate limiting (innecesaria con el circuito abierto)
+                if (chatClient.isCircuitOpen()) {
+                    continue;
+                }
                 try {
                     Thread.sleep(2000);
                 } catch (InterruptedException ie) {
@@ -128,30 +143,27 @@ public class IngredientTranslationService {
     private Map<String, String> translateBatch(List<String> ingredients) {
         try {
             // Verificar si OpenAI está configurado
-            if (openaiApiKey == null || openaiApiKey.trim().isEmpty() || openaiApiKey.startsWith("${")) {
+            if (!chatClient.isConfigured()) {
                 logger.warn("⚠️ OpenAI API Key no configurada, usando traducciones de fallback");
                 return createFallbackTranslations(ingredients);
             }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(openaiApiKey);
-
             String prompt = buildTranslationPrompt(ingredients);
             logger.debug("📝 Prompt construido para {} ingredientes", ingredients.size());
 
             Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-3.5-turbo");
+            requestBody.put("model", model);
             requestBody.put("messages", List.of(Map.of("role", "user", "content", prompt)));
             requestBody.put("max_tokens", 2000);
             requestBody.put("temperature", 0.3);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+            if (structuredOutput) {
+                requestBody.put("response_format", RESPONSE_FORMAT);
+            }
 
             logger.debug("🚀 Enviando request a OpenAI...");
-            ResponseEntity<Map> response = restTemplate.exchange(openaiApiUrl, HttpMethod.POST, entity, Map.class);
-
-            String translatedText = extractContentFromResponse(response);
+            // Sin usuario: solo consume del bucket global
+            rateLimiter.acquire(null);
+            String translatedText = chatClient.complete(requestBody);
             Map<String, String> translations = parseTranslationResponse(translatedText, ingredients);
 
             logger.debug("✅ Lote traducido: {} ingredientes", translations.size());
@@ -167,10 +179,10 @@ public class IngredientTranslationService {
         StringBuilder prompt = new StringBuilder();
         prompt.append("Traduce SOLO los nombres de estos ingredientes culinarios del inglés al español. \n\n");
         prompt.append("IMPORTANTE: Devuelve ÚNICAMENTE un objeto JSON con esta estructura exacta:\n");
-        prompt.append("{\n");
-        prompt.append("  \"ingredient1_english\": \"traducción_español\",\n");
-        prompt.append("  \"ingredient2_english\": \"traducción_español\"\n");
-        prompt.append("}\n\n");
+        prompt.append("{\"translations\": [\n");
+        prompt.append("  {\"en\": \"ingredient1_english\", \"es\": \"traducción_español\"},\n");
+        prompt.append("  {\"en\": \"ingredient2_english\", \"es\": \"traducción_español\"}\n");
+        prompt.append("]}\n\n");
         prompt.append("Lista de ingredientes a traducir:\n");
 
         for (String ingredient : ingredients) {
@@ -186,34 +198,23 @@ public class IngredientTranslationService {
         return prompt.toString();
     }
 
-    private String extractContentFromResponse(ResponseEntity<Map> response) {
-        try {
-            Map<String, Object> responseBody = response.getBody();
-            if (responseBody != null && responseBody.containsKey("choices")) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) responseBody.get("choices");
-                if (choices != null && !choices.isEmpty()) {
-                    Map<String, Object> firstChoice = choices.get(0);
-                    Map<String, Object> message = (Map<String, Object>) firstChoice.get("message");
-                    String content = (String) message.get("content");
-                    logger.debug("📨 Respuesta de OpenAI recibida");
-                    return content;
-                }
-            }
-            logger.warn("⚠️ Respuesta de OpenAI sin contenido esperado");
-        } catch (Exception e) {
-            logger.error("❌ Error extrayendo contenido de respuesta: {}", e.getMessage());
-        }
-        return "{}";
-    }
-
-    @SuppressWarnings("unchecked")
     private Map<String, String> parseTranslationResponse(String response, List<String> originalIngredients) {
         try {
             // Limpiar la respuesta
             String cleanResponse = response.replace("```json", "").replace("```", "").trim();
             logger.debug("🧹 Respuesta limpiada: {}", cleanResponse.substring(0, Math.min(100, cleanResponse.length())) + "...");
 
-            Map<String, String> translations = objectMapper.readValue(cleanResponse, Map.class);
+            // Cada par se valida contra el esquema antes de usarlo; los inválidos se tratan como no traducidos
+            Map<String, String> translations = new HashMap<>();
+            for (JsonNode item : objectMapper.readTree(cleanResponse).path("translations")) {
+                List<String> errors = JsonSchemas.validate(item, TRANSLATION_SCHEMA);
+                if (!errors.isEmpty()) {
+                    logger.warn("⚠️ Traducción descartada por no cumplir el esquema: {}", errors.get(0));
+                    continue;
+                }
+                IngredientTranslation translation = objectMapper.treeToValue(item, IngredientTranslation.class);
+                translations.put(translation.getEn(), translation.getEs());
+            }
             logger.info("✅ {} traducciones parseadas correctamente", translations.size());
 
             // Verificar que todas las traducciones estén presentes
@@ -292,16 +293,26 @@ public class IngredientTranslationService {
             int updatedCount = 0;
             int skippedCount = 0;
 
+            // Una sola consulta por nombre plegado (índice único) en vez de una por ingrediente
+            Set<String> foldedNames = new HashSet<>();
+            for (String englishName : translations.keySet()) {
+                foldedNames.add(TextNormalizer.fold(englishName));
+            }
+            Map<String, Ingredient> byFoldedName = new HashMap<>();
+            for (Ingredient existing : ingredientRepository.findByNameFoldedIn(foldedNames)) {
+                byFoldedName.put(existing.getNameFolded(), existing);
+            }
+
             for (Map.Entry<String, String> entry : translations.entrySet()) {
                 String englishName = entry.getKey();
                 String spanishName = entry.getValue();
+                String foldedName = TextNormalizer.fold(englishName);
 
-                // Buscar por nombre (case insensitive)
-                Optional<Ingredient> existingOpt = ingredientRepository.findByNameIgnoreCase(englishName);
+                // Buscar por nombre (sin mayúsculas ni tildes)
+                Ingredient existing = byFoldedName.get(foldedName);
 
-                if (existingOpt.isPresent()) {
-                    // ACTUALIZAR ingrediente existente
-                    Ingredient existing = existingOpt.get();
+                if (existing != null) {
+                    // ACTUALIZAR ingrediente existente (o uno nuevo de este lote con el mismo nombre plegado)
                     if (existing.getNameEs() == null || !existing.getNameEs().equals(spanishName)) {
                         existing.setNameEs(spanishName);
                         ingredientsToSave.add(existing);
@@ -320,13 +331,14 @@ public class IngredientTranslationService {
                             .imageUrl("https://www.themealdb.com/images/ingredients/" + englishName + ".png")
                             .build();
                     ingredientsToSave.add(ingredient);
+                    byFoldedName.put(foldedName, ingredient);
                     savedCount++;
                     logger.debug("➕ Nuevo: {} -> {}", englishName, spanishName);
                 }
             }
 
             if (!ingredientsToSave.isEmpty()) {
-                ingredientRepository.saveAll(ingredientsToSave);
+                searchIndex.upsertAll(ingredientRepository.saveAll(ingredientsToSave));
                 logger.info("💾 Guardados: {} nuevos, {} actualizados, {} sin cambios",
                         savedCount, updatedCount, skippedCount);
             } else {
@@ -364,22 +376,23 @@ public class IngredientTranslationService {
                     new Object[]{"Banana", "Plátano"}
             );
 
+            List<Ingredient> missing = new ArrayList<>();
             for (Object[] ingredientData : basicIngredients) {
                 String englishName = (String) ingredientData[0];
                 String spanishName = (String) ingredientData[1];
 
                 if (ingredientRepository.findByNameIgnoreCase(englishName).isEmpty()) {
-                    Ingredient ingredient = Ingredient.builder()
+                    missing.add(Ingredient.builder()
                             .name(englishName)
                             .nameEs(spanishName)
                             .unit("units")
                             .quantity(1.0)
                             .imageUrl("https://www.themealdb.com/images/ingredients/" + englishName + ".png")
-                            .build();
-
-                    ingredientRepository.save(ingredient);
+                            .build());
                 }
             }
+            // Un solo guardado y una sola publicación del índice para todo el lote
+            searchIndex.upsertAll(ingredientRepository.saveAll(missing));
 
             logger.info("✅ {} ingredientes básicos cargados", basicIngredients.size());
         } catch (Exception e) {
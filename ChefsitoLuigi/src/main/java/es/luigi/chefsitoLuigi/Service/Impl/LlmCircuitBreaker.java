@@ -0,0 +1,195 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker por ventana de las últimas N llamadas.
+ * CLOSED: deja pasar todo. OPEN: rechaza sin llamar durante openDuration.
+ * HALF_OPEN: deja pasar unas pocas llamadas de prueba; si todas van bien vuelve a CLOSED.
+ * Si las pruebas no terminan en halfOpenTimeout se vuelve a OPEN para no quedarse bloqueado.
+ * Cada permiso lleva la generación del estado en que se concedió: el resultado de una llamada
+ * que empezó antes de la última transición (p. ej. en CLOSED y que acaba en HALF_OPEN) se ignora.
+ */
+public class LlmCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final long halfOpenTimeoutNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier clock;
+
+    // Ventana circular de resultados: true = fallo
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long stateSince;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public LlmCircuitBreaker(String name, int slidingWindowSize, int minimumCalls, int failureRateThreshold,
+                             Duration openDuration, int halfOpenProbes, Duration halfOpenTimeout) {
+        this(name, slidingWindowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenProbes,
+                halfOpenTimeout, System::nanoTime);
+    }
+
+    public LlmCircuitBreaker(String name, int slidingWindowSize, int minimumCalls, int failureRateThreshold,
+                             Duration openDuration, int halfOpenProbes, Duration halfOpenTimeout, LongSupplier clock) {
+        this.name = name;
+        this.window = new boolean[slidingWindowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        this.halfOpenTimeoutNanos = halfOpenTimeout.toNanos();
+        this.clock = clock;
+        this.stateSince = clock.getAsLong();
+    }
+
+    /**
+     * Intenta obtener permiso para llamar. Devuelve null si el circuito lo rechaza; si no,
+     * hay que cerrar el permiso con onSuccess(), onFailure() u onIgnored() (en un finally).
+     */
+    public synchronized Permit tryAcquirePermission() {
+        long now = clock.getAsLong();
+        if (state == State.OPEN && now - stateSince >= openDurationNanos) {
+            transitionTo(State.HALF_OPEN);
+        } else if (state == State.HALF_OPEN && now - stateSince >= halfOpenTimeoutNanos) {
+            // Pruebas colgadas: sus resultados ya no cuentan (otra generación)
+            transitionTo(State.OPEN);
+        }
+        return switch (state) {
+            case CLOSED -> new Permit(generation);
+            case OPEN -> null;
+            case HALF_OPEN -> {
+                if (probesInFlight + probeSuccesses >= halfOpenProbes) {
+                    yield null;
+                }
+                probesInFlight++;
+                yield new Permit(generation);
+            }
+        };
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized void onSuccess(long permitGeneration) {
+        if (permitGeneration != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            probeSuccesses++;
+            if (probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    private synchronized void onFailure(long permitGeneration) {
+        if (permitGeneration != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && windowCount >= minimumCalls
+                && windowFailures * 100 >= failureRateThreshold * windowCount) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private synchronized void onIgnored(long permitGeneration) {
+        if (permitGeneration == generation && state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State newState) {
+        logger.warn("🔌 Circuit breaker '{}': {} -> {}", name, state, newState);
+        state = newState;
+        generation++;
+        stateSince = clock.getAsLong();
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (newState == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+
+    /**
+     * Permiso de una llamada. Solo cuenta el primer resultado que se informe;
+     * los siguientes (p. ej. el onIgnored del finally) no hacen nada.
+     */
+    public final class Permit {
+        private final long permitGeneration;
+        private boolean released;
+
+        private Permit(long permitGeneration) {
+            this.permitGeneration = permitGeneration;
+        }
+
+        public void onSuccess() {
+            if (release()) {
+                LlmCircuitBreaker.this.onSuccess(permitGeneration);
+            }
+        }
+
+        public void onFailure() {
+            if (release()) {
+                LlmCircuitBreaker.this.onFailure(permitGeneration);
+            }
+        }
+
+        /** La llamada no llegó a evaluar al proveedor (p. ej. error nuestro): libera el permiso sin contar. */
+        public void onIgnored() {
+            if (release()) {
+                LlmCircuitBreaker.this.onIgnored(permitGeneration);
+            }
+        }
+
+        private synchronized boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            return true;
+        }
+    }
+}
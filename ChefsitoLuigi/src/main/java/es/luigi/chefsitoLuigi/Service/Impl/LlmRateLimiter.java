@@ -0,0 +1,126 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.luigi.chefsitoLuigi.Exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Control de admisión del gasto en OpenAI: un token bucket por usuario y otro global.
+ * Si el token llega en menos de max-wait-ms la petición espera; si no, se rechaza
+ * con RateLimitExceededException (429 + Retry-After).
+ */
+@Component
+@RequiredArgsConstructor
+public class LlmRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmRateLimiter.class);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${openai.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${openai.rate-limit.max-wait-ms:2000}")
+    private long maxWaitMs;
+
+    @Value("${openai.rate-limit.user.capacity:5}")
+    private double userCapacity;
+
+    @Value("${openai.rate-limit.user.refill-per-minute:5}")
+    private double userRefillPerMinute;
+
+    @Value("${openai.rate-limit.user.idle-expiry-minutes:60}")
+    private long userIdleExpiryMinutes;
+
+    @Value("${openai.rate-limit.global.capacity:60}")
+    private double globalCapacity;
+
+    @Value("${openai.rate-limit.global.refill-per-minute:300}")
+    private double globalRefillPerMinute;
+
+    private Cache<Long, TokenBucket> userBuckets;
+    private TokenBucket globalBucket;
+    private Counter allowedCounter;
+    private Counter queuedCounter;
+    private Counter userRejectedCounter;
+    private Counter globalRejectedCounter;
+
+    @PostConstruct
+    void init() {
+        // Un bucket inactivo el tiempo suficiente estaría lleno de todos modos: se puede descartar
+        userBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(userIdleExpiryMinutes))
+                .build();
+        globalBucket = new TokenBucket(globalCapacity, globalRefillPerMinute / 60);
+        meterRegistry.gauge("openai.rate_limit.global.tokens", this, limiter -> limiter.globalBucket.availableTokens());
+        meterRegistry.gauge("openai.rate_limit.user.buckets", this, limiter -> limiter.userBuckets.estimatedSize());
+        allowedCounter = meterRegistry.counter("openai.rate_limit", "result", "allowed");
+        queuedCounter = meterRegistry.counter("openai.rate_limit", "result", "queued");
+        userRejectedCounter = meterRegistry.counter("openai.rate_limit", "result", "rejected", "scope", "user");
+        globalRejectedCounter = meterRegistry.counter("openai.rate_limit", "result", "rejected", "scope", "global");
+        logger.info("🚦 Límite de OpenAI {}: usuario {} (+{}/min), global {} (+{}/min), espera máxima {} ms",
+                enabled ? "activo" : "desactivado", userCapacity, userRefillPerMinute, globalCapacity, globalRefillPerMinute, maxWaitMs);
+    }
+
+    /**
+     * Consume un token del usuario (si lo hay) y uno global antes de una llamada a OpenAI,
+     * esperando como mucho max-wait-ms.
+     */
+    public void acquire(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+
+        TokenBucket userBucket = null;
+        long waitNanos = 0;
+        if (userId != null) {
+            userBucket = userBuckets.get(userId, id -> new TokenBucket(userCapacity, userRefillPerMinute / 60));
+            TokenBucket.Reservation reservation = userBucket.reserve(maxWaitNanos);
+            if (!reservation.granted()) {
+                userRejectedCounter.increment();
+                throw rejected("Has alcanzado el límite de recomendaciones, espera unos segundos", reservation.waitNanos());
+            }
+            waitNanos = reservation.waitNanos();
+        }
+
+        TokenBucket.Reservation global = globalBucket.reserve(maxWaitNanos);
+        if (!global.granted()) {
+            if (userBucket != null) {
+                userBucket.refund();
+            }
+            globalRejectedCounter.increment();
+            logger.warn("🚦 Límite global de OpenAI alcanzado, petición de usuario {} rechazada", userId);
+            throw rejected("El servicio de recetas está saturado, inténtalo de nuevo en unos segundos", global.waitNanos());
+        }
+        // Ambos buckets cuentan desde ahora: basta con esperar el mayor de los dos déficits
+        waitNanos = Math.max(waitNanos, global.waitNanos());
+
+        if (waitNanos == 0) {
+            allowedCounter.increment();
+            return;
+        }
+        queuedCounter.increment();
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw rejected("Petición interrumpida esperando turno", waitNanos);
+        }
+    }
+
+    private static RateLimitExceededException rejected(String message, long waitNanos) {
+        return new RateLimitExceededException(message, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+    }
+}
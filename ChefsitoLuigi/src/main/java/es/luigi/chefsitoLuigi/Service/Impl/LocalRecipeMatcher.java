@@ -0,0 +1,263 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
+import es.luigi.chefsitoLuigi.Entity.Recipe;
+import es.luigi.chefsitoLuigi.Repository.RecipeRepository;
+import es.luigi.chefsitoLuigi.Util.TextNormalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Motor local de recomendaciones: puntúa las recetas ya guardadas según qué parte
+ * de sus ingredientes cubre la despensa del usuario, usando un índice invertido
+ * palabra -> líneas de ingredientes. Solo si la cobertura no llega al mínimo se recurre a OpenAI.
+ * Una receta solo se sirve si se generó con todas las restricciones de quien pregunta (como en
+ * PantrySimilarityIndex): una alergia por categoría ("gluten") no aparece en líneas como
+ * "harina de trigo", así que buscarla en los ingredientes no basta.
+ * El índice es una instantánea inmutable que se reconstruye periódicamente.
+ */
+@Component
+@RequiredArgsConstructor
+public class LocalRecipeMatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalRecipeMatcher.class);
+
+    // Palabras sin valor para identificar ingredientes (conectores y medidas)
+    private static final Set<String> STOP_WORDS = Set.of(
+            "de", "del", "la", "el", "los", "las", "y", "o", "en", "con", "al", "a", "para", "un", "una", "unos", "unas",
+            "taza", "cucharada", "cucharadita", "pizca", "gusto", "g", "kg", "ml", "l",
+            "of", "and", "the", "or", "with", "to", "for", "cup", "tbsp", "tsp", "pinch", "taste");
+
+    private final RecipeRepository recipeRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendations.local.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendations.local.min-coverage:0.7}")
+    private double minCoverage;
+
+    @Value("${recommendations.local.min-results:3}")
+    private int minResults;
+
+    // Ingredientes que se asume que hay en cualquier cocina
+    @Value("${recommendations.local.pantry-staples:sal,pimienta,agua,aceite,salt,pepper,water,oil}")
+    private List<String> pantryStaples;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private Timer matchTimer;
+    private Counter servedCounter;
+    private Counter insufficientCounter;
+
+    @PostConstruct
+    void init() {
+        matchTimer = meterRegistry.timer("recommendations.local.match");
+        servedCounter = meterRegistry.counter("recommendations.local", "result", "served");
+        insufficientCounter = meterRegistry.counter("recommendations.local", "result", "insufficient");
+        meterRegistry.gauge("recommendations.local.indexed_recipes", this, matcher -> matcher.snapshot.recipes.length);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${recommendations.local.refresh-interval-ms:300000}",
+            initialDelayString = "${recommendations.local.refresh-interval-ms:300000}")
+    public void rebuildIndex() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            List<Recipe> recipes = recipeRepository.findAllForMatchingBy();
+            Set<String> staples = pantryStaples.stream()
+                    .map(TextNormalizer::fold)
+                    .filter(staple -> !staple.isEmpty())
+                    .collect(Collectors.toSet());
+            snapshot = Snapshot.build(recipes, staples);
+            logger.info("📚 Índice local de recetas reconstruido: {} recetas, {} palabras en {} ms",
+                    snapshot.recipes.length, snapshot.postings.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("❌ Error reconstruyendo el índice local de recetas: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Las mejores recetas guardadas para la despensa, o vacío si no hay al menos
+     * min-results con cobertura suficiente (en ese caso hay que llamar a OpenAI).
+     */
+    public List<Recipe> findBestMatches(List<EnhancedIngredientInfo> pantry, UserPreferencesDto preferences, int limit) {
+        if (!enabled || pantry.isEmpty()) {
+            return List.of();
+        }
+        List<Recipe> matches = matchTimer.record(() -> match(snapshot, pantry, preferences, limit));
+        if (matches.size() < Math.min(minResults, limit)) {
+            insufficientCounter.increment();
+            return List.of();
+        }
+        servedCounter.increment();
+        return matches;
+    }
+
+    private List<Recipe> match(Snapshot index, List<EnhancedIngredientInfo> pantry, UserPreferencesDto preferences, int limit) {
+        // Líneas cubiertas por la despensa, por receta
+        Map<Integer, BitSet> covered = new HashMap<>();
+        for (EnhancedIngredientInfo item : pantry) {
+            markCovered(index, keywords(item.getSpanishName()), covered);
+            markCovered(index, keywords(item.getEnglishName()), covered);
+        }
+
+        Set<String> required = RecommendationFingerprint.exclusions(preferences);
+        List<List<String>> exclusions = exclusionKeywords(preferences);
+        String diet = preferences != null && preferences.getDietType() != null
+                ? preferences.getDietType().trim().toUpperCase(Locale.ROOT) : "";
+
+        List<ScoredRecipe> scored = new ArrayList<>();
+        for (Map.Entry<Integer, BitSet> entry : covered.entrySet()) {
+            IndexedRecipe recipe = index.recipes[entry.getKey()];
+            BitSet lines = (BitSet) entry.getValue().clone();
+            lines.or(recipe.stapleLines);
+            double coverage = (double) lines.cardinality() / recipe.lineWords.length;
+            if (coverage < minCoverage) {
+                continue;
+            }
+            if (!diet.isEmpty() && !recipe.dietTags.contains(diet)) {
+                continue;
+            }
+            // Se generó sin alguna de las restricciones del usuario: no se puede garantizar que la respete
+            if (!recipe.exclusions.containsAll(required)) {
+                continue;
+            }
+            // Comprobación adicional sobre el texto, por si el modelo no respetó la restricción
+            if (containsAny(recipe, exclusions)) {
+                continue;
+            }
+            scored.add(new ScoredRecipe(recipe, coverage));
+        }
+
+        return scored.stream()
+                .sorted(Comparator.comparingDouble(ScoredRecipe::coverage).reversed()
+                        .thenComparing(scoredRecipe -> scoredRecipe.recipe().lineWords.length))
+                .limit(limit)
+                .map(scoredRecipe -> scoredRecipe.recipe().recipe)
+                .collect(Collectors.toList());
+    }
+
+    private void markCovered(Snapshot index, List<String> words, Map<Integer, BitSet> covered) {
+        if (words.isEmpty()) {
+            return;
+        }
+        // Se recorre la lista de apariciones más corta y se verifica el resto de palabras
+        long[] rarestPostings = null;
+        for (String word : words) {
+            long[] postings = index.postings.get(word);
+            if (postings == null) {
+                return;
+            }
+            if (rarestPostings == null || postings.length < rarestPostings.length) {
+                rarestPostings = postings;
+            }
+        }
+        for (long posting : rarestPostings) {
+            int recipeIndex = (int) (posting >>> 32);
+            int lineIndex = (int) posting;
+            Set<String> lineWords = index.recipes[recipeIndex].lineWords[lineIndex];
+            if (words.size() == 1 || lineWords.containsAll(words)) {
+                covered.computeIfAbsent(recipeIndex, key -> new BitSet()).set(lineIndex);
+            }
+        }
+    }
+
+    private List<List<String>> exclusionKeywords(UserPreferencesDto preferences) {
+        if (preferences == null) {
+            return List.of();
+        }
+        List<List<String>> exclusions = new ArrayList<>();
+        for (List<String> values : Arrays.asList(preferences.getAllergies(), preferences.getIntolerances(), preferences.getDislikedIngredients())) {
+            if (values != null) {
+                values.stream().map(LocalRecipeMatcher::keywords).filter(words -> !words.isEmpty()).forEach(exclusions::add);
+            }
+        }
+        return exclusions;
+    }
+
+    private boolean containsAny(IndexedRecipe recipe, List<List<String>> exclusions) {
+        for (List<String> exclusion : exclusions) {
+            for (Set<String> lineWords : recipe.lineWords) {
+                if (lineWords.containsAll(exclusion)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Palabras significativas, plegadas y con un singular aproximado ("cebollas" -> "cebolla"). */
+    static List<String> keywords(String text) {
+        List<String> keywords = new ArrayList<>();
+        for (String word : TextNormalizer.words(text)) {
+            String singular = word.length() > 3 && word.endsWith("s") ? word.substring(0, word.length() - 1) : word;
+            if (STOP_WORDS.contains(singular) || Character.isDigit(word.charAt(0))) {
+                continue;
+            }
+            keywords.add(singular);
+        }
+        return keywords;
+    }
+
+    private record ScoredRecipe(IndexedRecipe recipe, double coverage) {
+    }
+
+    private record IndexedRecipe(Recipe recipe, Set<String>[] lineWords, BitSet stapleLines, Set<String> dietTags,
+                                 Set<String> exclusions) {
+    }
+
+    private record Snapshot(IndexedRecipe[] recipes, Map<String, long[]> postings) {
+
+        static final Snapshot EMPTY = new Snapshot(new IndexedRecipe[0], Map.of());
+
+        @SuppressWarnings("unchecked")
+        static Snapshot build(List<Recipe> recipes, Set<String> staples) {
+            List<IndexedRecipe> indexed = new ArrayList<>();
+            Map<String, List<Long>> postings = new HashMap<>();
+            for (Recipe recipe : recipes) {
+                List<String> lines = recipe.getIngredientNames();
+                if (lines == null || lines.isEmpty() || lines.size() > Short.MAX_VALUE) {
+                    continue;
+                }
+                int recipeIndex = indexed.size();
+                Set<String>[] lineWords = new Set[lines.size()];
+                BitSet stapleLines = new BitSet(lines.size());
+                for (int line = 0; line < lines.size(); line++) {
+                    Set<String> words = new HashSet<>(keywords(lines.get(line)));
+                    lineWords[line] = words;
+                    if (!words.isEmpty() && staples.containsAll(words)) {
+                        stapleLines.set(line);
+                    }
+                    for (String word : words) {
+                        postings.computeIfAbsent(word, key -> new ArrayList<>()).add(((long) recipeIndex << 32) | line);
+                    }
+                }
+                Set<String> dietTags = recipe.getDietTags() == null ? Set.of() : recipe.getDietTags().stream()
+                        .map(tag -> tag.trim().toUpperCase(Locale.ROOT))
+                        .collect(Collectors.toUnmodifiableSet());
+                Set<String> exclusions = recipe.getExclusions() == null ? Set.of() : Set.copyOf(recipe.getExclusions());
+                indexed.add(new IndexedRecipe(recipe, lineWords, stapleLines, dietTags, exclusions));
+            }
+
+            Map<String, long[]> compactPostings = new HashMap<>(postings.size() * 2);
+            postings.forEach((word, refs) -> compactPostings.put(word, refs.stream().mapToLong(Long::longValue).toArray()));
+            return new Snapshot(indexed.toArray(new IndexedRecipe[0]), compactPostings);
+        }
+    }
+}
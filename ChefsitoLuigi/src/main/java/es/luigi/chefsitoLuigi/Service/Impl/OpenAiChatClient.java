@@ -0,0 +1,325 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.ChatCompletionChunk;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.ChatCompletionResponse;
+import es.luigi.chefsitoLuigi.Exception.LlmUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Único punto de salida hacia la API de chat de OpenAI.
+ * Envuelve cada llamada en un circuit breaker y en reintentos con backoff exponencial
+ * y jitter, limitados por un presupuesto de reintentos (un % de las llamadas).
+ * Con el circuito abierto falla al momento con LlmUnavailableException.
+ * Es el backend LIVE; los servicios lo reciben a través de ChatCompletionBackend.
+ */
+@Component
+@RequiredArgsConstructor
+public class OpenAiChatClient implements ChatCompletionBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiChatClient.class);
+
+    @Qualifier("openAiRestTemplate")
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${openai.api.key}")
+    private String openaiApiKey;
+
+    @Value("${openai.api.url}")
+    private String openaiApiUrl;
+
+    @Value("${openai.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${openai.retry.initial-backoff-ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${openai.retry.max-backoff-ms:4000}")
+    private long maxBackoffMs;
+
+    @Value("${openai.retry.budget-ratio:0.2}")
+    private double retryBudgetRatio;
+
+    @Value("${openai.retry.budget-max-tokens:10}")
+    private double retryBudgetMaxTokens;
+
+    @Value("${openai.circuit-breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+
+    @Value("${openai.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${openai.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${openai.circuit-breaker.open-duration-seconds:30}")
+    private long openDurationSeconds;
+
+    @Value("${openai.circuit-breaker.half-open-probes:2}")
+    private int halfOpenProbes;
+
+    // Mayor que el read timeout: una prueba solo se da por perdida si no puede seguir en curso
+    @Value("${openai.circuit-breaker.half-open-timeout-seconds:90}")
+    private long halfOpenTimeoutSeconds;
+
+    private LlmCircuitBreaker circuitBreaker;
+    private RetryBudget retryBudget;
+    private Counter rejectedCounter;
+    private Counter retryCounter;
+    private Counter budgetExhaustedCounter;
+    private Counter truncatedCounter;
+
+    @PostConstruct
+    void init() {
+        circuitBreaker = new LlmCircuitBreaker("openai", slidingWindowSize, minimumCalls,
+                failureRateThreshold, Duration.ofSeconds(openDurationSeconds), halfOpenProbes,
+                Duration.ofSeconds(halfOpenTimeoutSeconds));
+        retryBudget = new RetryBudget(retryBudgetRatio, retryBudgetMaxTokens);
+        // 0 = CLOSED, 1 = HALF_OPEN, 2 = OPEN
+        meterRegistry.gauge("openai.circuit_breaker.state", circuitBreaker, breaker -> switch (breaker.getState()) {
+            case CLOSED -> 0;
+            case HALF_OPEN -> 1;
+            case OPEN -> 2;
+        });
+        rejectedCounter = meterRegistry.counter("openai.circuit_breaker.rejected");
+        retryCounter = meterRegistry.counter("openai.retries");
+        budgetExhaustedCounter = meterRegistry.counter("openai.retries.budget_exhausted");
+        truncatedCounter = meterRegistry.counter("openai.responses.truncated");
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return openaiApiKey != null && !openaiApiKey.trim().isEmpty() && !openaiApiKey.startsWith("${");
+    }
+
+    @Override
+    public boolean isCircuitOpen() {
+        return circuitBreaker.getState() == LlmCircuitBreaker.State.OPEN;
+    }
+
+    @Override
+    public String complete(Map<String, Object> requestBody) {
+        retryBudget.deposit();
+        for (int attempt = 1; ; attempt++) {
+            LlmCircuitBreaker.Permit permit = acquirePermission();
+            try {
+                HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, buildHeaders());
+                ResponseEntity<ChatCompletionResponse> response =
+                        restTemplate.exchange(openaiApiUrl, HttpMethod.POST, entity, ChatCompletionResponse.class);
+                permit.onSuccess();
+                logger.debug("✅ Respuesta recibida de OpenAI");
+                recordUsage(requestBody, response.getBody() != null ? response.getBody().getUsage() : null);
+                return extractContentFromResponse(response.getBody());
+            } catch (RestClientException e) {
+                handleFailure(permit, e, attempt, false);
+            } finally {
+                // Cualquier otra excepción (parseo, bugs...) no debe dejar el permiso colgado
+                permit.onIgnored();
+            }
+        }
+    }
+
+    /**
+     * Solo se reintenta si el fallo ocurre antes de recibir contenido.
+     */
+    @Override
+    public void stream(Map<String, Object> requestBody, Consumer<String> onContent) {
+        retryBudget.deposit();
+        boolean[] delivered = {false};
+        for (int attempt = 1; ; attempt++) {
+            LlmCircuitBreaker.Permit permit = acquirePermission();
+            try {
+                restTemplate.execute(openaiApiUrl, HttpMethod.POST, httpRequest -> {
+                    httpRequest.getHeaders().putAll(buildHeaders());
+                    objectMapper.writeValue(httpRequest.getBody(), requestBody);
+                }, httpResponse -> {
+                    BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(httpResponse.getBody(), StandardCharsets.UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        // Formato SSE de OpenAI: "data: {...}" y al final "data: [DONE]"
+                        if (!line.startsWith("data:")) {
+                            continue;
+                        }
+                        String data = line.substring(5).trim();
+                        if ("[DONE]".equals(data)) {
+                            break;
+                        }
+                        ChatCompletionChunk chunk = objectMapper.readValue(data, ChatCompletionChunk.class);
+                        recordUsage(requestBody, chunk.getUsage());
+                        if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) {
+                            continue;
+                        }
+                        ChatCompletionChunk.Choice choice = chunk.getChoices().get(0);
+                        if (choice.getDelta() != null && choice.getDelta().getContent() != null) {
+                            delivered[0] = true;
+                            onContent.accept(choice.getDelta().getContent());
+                        }
+                        checkTruncation(choice.getFinishReason());
+                    }
+                    return null;
+                });
+                permit.onSuccess();
+                logger.debug("✅ Stream de OpenAI finalizado");
+                return;
+            } catch (RestClientException | UncheckedIOException e) {
+                handleFailure(permit, e, attempt, delivered[0]);
+            } finally {
+                permit.onIgnored();
+            }
+        }
+    }
+
+    private LlmCircuitBreaker.Permit acquirePermission() {
+        LlmCircuitBreaker.Permit permit = circuitBreaker.tryAcquirePermission();
+        if (permit == null) {
+            rejectedCounter.increment();
+            throw new LlmUnavailableException("Circuito de OpenAI abierto: llamada rechazada sin esperar");
+        }
+        return permit;
+    }
+
+    private void handleFailure(LlmCircuitBreaker.Permit permit, RuntimeException e, int attempt, boolean contentDelivered) {
+        boolean retryable = isRetryable(e);
+        if (retryable) {
+            permit.onFailure();
+        } else {
+            permit.onIgnored();
+        }
+
+        if (!retryable || contentDelivered || attempt >= maxAttempts) {
+            throw new LlmUnavailableException("Error llamando a OpenAI: " + e.getMessage(), e);
+        }
+        if (!retryBudget.tryWithdraw()) {
+            budgetExhaustedCounter.increment();
+            throw new LlmUnavailableException("Presupuesto de reintentos agotado: " + e.getMessage(), e);
+        }
+
+        long backoffMs = backoffWithJitter(attempt);
+        retryCounter.increment();
+        logger.warn("🔁 Reintento {}/{} a OpenAI en {} ms: {}", attempt + 1, maxAttempts, backoffMs, e.getMessage());
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new LlmUnavailableException("Reintento a OpenAI interrumpido", ie);
+        }
+    }
+
+    // Errores de red, timeouts, 5xx y 429 son transitorios; el resto de 4xx no se reintenta
+    private boolean isRetryable(RuntimeException e) {
+        return e instanceof ResourceAccessException
+                || e instanceof UncheckedIOException
+                || e instanceof HttpServerErrorException
+                || e instanceof HttpClientErrorException.TooManyRequests;
+    }
+
+    // Backoff exponencial con "full jitter": aleatorio entre 0 y el tope del intento
+    private long backoffWithJitter(int attempt) {
+        long cap = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private HttpHeaders buildHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(openaiApiKey);
+        return headers;
+    }
+
+    private String extractContentFromResponse(ChatCompletionResponse response) {
+        if (response == null || response.getChoices() == null || response.getChoices().isEmpty()
+                || response.getChoices().get(0).getMessage() == null) {
+            logger.warn("⚠️ Respuesta de OpenAI sin contenido esperado");
+            return "";
+        }
+        ChatCompletionResponse.Choice choice = response.getChoices().get(0);
+        checkTruncation(choice.getFinishReason());
+        String content = choice.getMessage().getContent();
+        return content != null ? content : "";
+    }
+
+    /**
+     * Tokens consumidos por llamada y modelo: openai.tokens{type=prompt|completion} y openai.tokens.per_call.
+     */
+    private void recordUsage(Map<String, Object> requestBody, ChatCompletionResponse.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        String model = String.valueOf(requestBody.get("model"));
+        if (usage.getPromptTokens() != null) {
+            meterRegistry.counter("openai.tokens", "model", model, "type", "prompt").increment(usage.getPromptTokens());
+        }
+        if (usage.getCompletionTokens() != null) {
+            meterRegistry.counter("openai.tokens", "model", model, "type", "completion").increment(usage.getCompletionTokens());
+        }
+        if (usage.getTotalTokens() != null) {
+            DistributionSummary.builder("openai.tokens.per_call")
+                    .tag("model", model)
+                    .register(meterRegistry)
+                    .record(usage.getTotalTokens());
+        }
+    }
+
+    // finish_reason=length: max_tokens cortó la respuesta; el parser conserva lo que esté completo
+    private void checkTruncation(String finishReason) {
+        if ("length".equals(finishReason)) {
+            truncatedCounter.increment();
+            logger.warn("✂️ Respuesta de OpenAI cortada por max_tokens");
+        }
+    }
+
+    /**
+     * Cada llamada nueva ingresa "ratio" tokens; cada reintento consume uno.
+     * Así los reintentos nunca superan ~ratio del tráfico aunque el proveedor falle en masa.
+     */
+    private static class RetryBudget {
+        private final double ratio;
+        private final double maxTokens;
+        private double tokens;
+
+        RetryBudget(double ratio, double maxTokens) {
+            this.ratio = ratio;
+            this.maxTokens = maxTokens;
+            this.tokens = maxTokens;
+        }
+
+        synchronized void deposit() {
+            tokens = Math.min(maxTokens, tokens + ratio);
+        }
+
+        synchronized boolean tryWithdraw() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
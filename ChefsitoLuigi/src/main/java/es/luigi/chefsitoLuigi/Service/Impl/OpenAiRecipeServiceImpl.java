@@ -1,7 +1,5 @@
 package es.luigi.chefsitoLuigi.Service.Impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeRequest;
 import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
 import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
@@ -9,21 +7,21 @@ import es.luigi.chefsitoLuigi.Dto.UserProfileDto;
 import es.luigi.chefsitoLuigi.Entity.Ingredient;
 import es.luigi.chefsitoLuigi.Entity.PantryItem;
 import es.luigi.chefsitoLuigi.Entity.Recipe;
-import es.luigi.chefsitoLuigi.Entity.User;
+import es.luigi.chefsitoLuigi.Exception.LlmUnavailableException;
+import es.luigi.chefsitoLuigi.Exception.RateLimitExceededException;
 import es.luigi.chefsitoLuigi.Repository.PantryItemRepository;
 import es.luigi.chefsitoLuigi.Repository.RecipeRepository;
-import es.luigi.chefsitoLuigi.Repository.UserRepository;
 import es.luigi.chefsitoLuigi.Service.OpenAiRecipeService;
 import es.luigi.chefsitoLuigi.Service.UserProfileService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,142 +29,288 @@ import java.util.stream.Collectors;
 public class OpenAiRecipeServiceImpl implements OpenAiRecipeService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAiRecipeServiceImpl.class);
+    private static final int HISTORY_FALLBACK_SIZE = 5;
 
     private final PantryItemRepository pantryItemRepository;
-    private final UserRepository userRepository;
     private final UserProfileService userProfileService;
     private final RecipeRepository recipeRepository;
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    // Cache simple en memoria para evitar llamadas repetidas a OpenAI
-    private final Map<String, List<OpenAiRecipeResponse>> recipeCache = new HashMap<>();
-    private final Map<Long, Long> userLastRequestTime = new HashMap<>();
-    private static final long CACHE_DURATION_MS = 30 * 60 * 1000; // 30 minutos
-
-    @Value("${openai.api.key}")
-    private String openaiApiKey;
-
-    @Value("${openai.api.url}")
-    private String openaiApiUrl;
+    private final RecommendationHistoryWriter historyWriter;
+    private final ChatCompletionBackend chatClient;
+    private final LlmRateLimiter rateLimiter;
+    private final RecipePromptBuilder promptBuilder;
+    private final RecipeResponseParser responseParser;
+    private final RecipeRecommendationCache recommendationCache;
+    private final UserRecommendationCache userRecommendationCache;
+    private final PantrySimilarityIndex similarityIndex;
+    private final LocalRecipeMatcher localRecipeMatcher;
+
+    @Value("${openai.model:gpt-4o-mini}")
+    private String model;
+
+    @Value("${openai.structured-output.enabled:true}")
+    private boolean structuredOutput;
 
     @Override
     public List<OpenAiRecipeResponse> getRecipeRecommendations(OpenAiRecipeRequest request) {
-        try {
-            // Verificar si ya tenemos recetas en caché para estos ingredientes
-            String cacheKey = generateCacheKey(request);
-            List<OpenAiRecipeResponse> cachedRecipes = getCachedRecipes(cacheKey, request.getUserId());
-
-            if (cachedRecipes != null && !cachedRecipes.isEmpty()) {
-                logger.info("✅ Devolviendo recetas desde caché para usuario: {}", request.getUserId());
-                return cachedRecipes;
-            }
-
-            logger.debug("Construyendo prompt para OpenAI...");
-            String prompt = buildRecipePrompt(request);
-            String aiResponse = callOpenAiApi(prompt);
-            List<OpenAiRecipeResponse> recipes = parseAiResponse(aiResponse);
-
-            // Limitar a máximo 5 recetas
-            if (recipes.size() > 5) {
-                recipes = recipes.subList(0, 5);
-                logger.debug("Recetas limitadas a 5 de {}", recipes.size());
-            }
+        return recommend(request, RecommendationFingerprint.forRequest(request), () -> generateRecipes(request), recipes -> {});
+    }
 
-            // Guardar en caché
-            cacheRecipes(cacheKey, recipes, request.getUserId());
+    /**
+     * onRecommended solo recibe recetas recién generadas o cacheadas, nunca el respaldo del historial.
+     */
+    private List<OpenAiRecipeResponse> recommend(OpenAiRecipeRequest request, String cacheKey,
+                                                 Supplier<List<OpenAiRecipeResponse>> generator,
+                                                 Consumer<List<OpenAiRecipeResponse>> onRecommended) {
+        try {
+            // Caché + coalescencia: peticiones equivalentes (aunque sean de otro usuario) comparten una sola llamada a OpenAI
+            List<OpenAiRecipeResponse> recipes = recommendationCache.getOrGenerate(cacheKey, generator);
 
-            // Guardar recetas en historial si tenemos userId
-            if (request.getUserId() != null) {
-                saveRecipesToHistory(recipes, request.getUserId());
+            // El historial es por usuario, así que se guarda también cuando las recetas vienen de caché
+            if (request.getUserId() != null && !recipes.isEmpty()) {
+                saveRecipesToHistory(recipes, request.getUserId(), request.getPreferences());
             }
-
-            logger.info("✅ {} recetas generadas exitosamente para usuario {}", recipes.size(), request.getUserId());
+            onRecommended.accept(recipes);
             return recipes;
+        } catch (LlmUnavailableException e) {
+            // Sin OpenAI se sirven las últimas recetas del historial (no se cachean)
+            logger.warn("⚠️ OpenAI no disponible, usando historial como respaldo: {}", e.getMessage());
+            return fallbackFromHistory(request.getUserId());
+        } catch (RateLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("❌ Error generando recomendaciones de recetas: {}", e.getMessage(), e);
             return Collections.emptyList();
         }
     }
 
+    private List<OpenAiRecipeResponse> generateRecipes(OpenAiRecipeRequest request) {
+        // Solo se consume cupo cuando de verdad se llama a OpenAI, no en aciertos de caché
+        rateLimiter.acquire(request.getUserId());
+        RecipePromptBuilder.RecipePrompt prompt = promptBuilder.build(request);
+        String aiResponse = callOpenAiApi(prompt);
+        List<OpenAiRecipeResponse> recipes = responseParser.parse(aiResponse);
+
+        // Limitar a máximo 5 recetas
+        if (recipes.size() > 5) {
+            logger.debug("Recetas limitadas a 5 de {}", recipes.size());
+            recipes = recipes.subList(0, 5);
+        }
+
+        // Id estable asignado antes de cachear para no duplicar recetas al guardar historial desde caché
+        recipes.forEach(this::assignOpenAiId);
+
+        logger.info("✅ {} recetas generadas exitosamente para usuario {}", recipes.size(), request.getUserId());
+        return recipes;
+    }
+
     @Override
     public List<OpenAiRecipeResponse> getRecipeRecommendationsForUser(Long userId) {
         try {
-            // Verificar si el usuario hizo una solicitud reciente
-            if (isRecentRequest(userId)) {
-                logger.debug("⏰ Usuario {} ya hizo una solicitud reciente, verificando caché...", userId);
+            // Sin cambios de despensa ni perfil desde la última vez: ni siquiera se recalcula la huella
+            long version = userRecommendationCache.currentVersion(userId);
+            Optional<UserRecommendationCache.UserRecommendations> unchanged = userRecommendationCache.get(userId, version);
+            if (unchanged.isPresent()) {
+                logger.debug("✅ Recomendaciones sin cambios para usuario {}", userId);
+                saveRecipesToHistory(unchanged.get().recipes(), userId, unchanged.get().preferences());
+                return unchanged.get().recipes();
             }
+            return buildRequestForUser(userId)
+                    .map(prepared -> recommend(prepared.request(), prepared.cacheKey(), () -> generateForPantry(prepared),
+                            recipes -> userRecommendationCache.put(userId, version, recipes, prepared.request().getPreferences())))
+                    .orElse(Collections.emptyList());
+        } catch (RateLimitExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("❌ Error obteniendo recomendaciones para usuario {}: {}", userId, e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
 
-            // Obtener ingredientes del usuario CON INFORMACIÓN MEJORADA
-            List<PantryItem> pantryItems = pantryItemRepository.findByUserId(userId);
-            List<EnhancedIngredientInfo> enhancedIngredients = pantryItems.stream()
-                    .map(this::mapToEnhancedIngredientInfo)
-                    .collect(Collectors.toList());
+    /**
+     * Deja en caché las recomendaciones de la despensa actual sin tocar el historial:
+     * el usuario aún no las ha visto.
+     */
+    @Override
+    public void prewarmRecommendationsForUser(Long userId) {
+        long version = userRecommendationCache.currentVersion(userId);
+        buildRequestForUser(userId).ifPresent(prepared -> {
+            List<OpenAiRecipeResponse> recipes = recommendationCache.getOrGenerate(prepared.cacheKey(), () -> generateForPantry(prepared));
+            userRecommendationCache.put(userId, version, recipes, prepared.request().getPreferences());
+            logger.info("🔥 {} recetas precalentadas para usuario {}", recipes.size(), userId);
+        });
+    }
 
-            List<String> availableIngredientsForPrompt = enhancedIngredients.stream()
-                    .map(this::formatIngredientForPrompt)
-                    .collect(Collectors.toList());
+    @Override
+    public List<OpenAiRecipeResponse> streamRecipeRecommendationsForUser(Long userId, Consumer<OpenAiRecipeResponse> onRecipe) {
+        long version = userRecommendationCache.currentVersion(userId);
+        Optional<UserRecommendationCache.UserRecommendations> unchanged = userRecommendationCache.get(userId, version);
+        if (unchanged.isPresent()) {
+            logger.info("✅ Emitiendo recetas sin cambios para usuario: {}", userId);
+            unchanged.get().recipes().forEach(onRecipe);
+            saveRecipesToHistory(unchanged.get().recipes(), userId, unchanged.get().preferences());
+            return unchanged.get().recipes();
+        }
 
-            // DEBUG: Mostrar ingredientes del usuario
-            logger.debug("🧪 Usuario {} tiene ingredientes mejorados: {}", userId, availableIngredientsForPrompt);
-            enhancedIngredients.forEach(ingredient ->
-                    logger.debug("  - EN: '{}', ES: '{}', Cantidad: {} {}",
-                            ingredient.getEnglishName(),
-                            ingredient.getSpanishName(),
-                            ingredient.getQuantity(),
-                            ingredient.getUnit())
-            );
-
-            if (enhancedIngredients.isEmpty()) {
-                logger.warn("❌ Usuario {} no tiene ingredientes en la despensa", userId);
-                return Collections.emptyList();
-            }
+        Optional<PreparedRequest> userRequest = buildRequestForUser(userId);
+        if (userRequest.isEmpty()) {
+            return Collections.emptyList();
+        }
+        OpenAiRecipeRequest request = userRequest.get().request();
+        String cacheKey = userRequest.get().cacheKey();
+
+        Optional<List<OpenAiRecipeResponse>> cachedRecipes = recommendationCache.get(cacheKey)
+                .or(() -> findSimilarPantryRecipes(userRequest.get()))
+                .or(() -> findLocalRecipes(userRequest.get()));
+        if (cachedRecipes.isPresent()) {
+            logger.info("✅ Emitiendo recetas desde caché para usuario: {}", userId);
+            cachedRecipes.get().forEach(onRecipe);
+            saveRecipesToHistory(cachedRecipes.get(), userId, request.getPreferences());
+            userRecommendationCache.put(userId, version, cachedRecipes.get(), request.getPreferences());
+            return cachedRecipes.get();
+        }
 
-            // Obtener preferencias del usuario
-            UserProfileDto userProfileDto = userProfileService.findByUserId(userId)
-                    .orElse(UserProfileDto.builder().build());
-
-            UserPreferencesDto preferences = UserPreferencesDto.builder()
-                    .allergies(userProfileDto.getAllergies() != null ? userProfileDto.getAllergies() : Collections.emptyList())
-                    .intolerances(userProfileDto.getIntolerances() != null ? userProfileDto.getIntolerances() : Collections.emptyList())
-                    .dislikedIngredients(userProfileDto.getDislikedIngredients() != null ? userProfileDto.getDislikedIngredients() : Collections.emptyList())
-                    .dietType(userProfileDto.getDietType())
-                    .build();
-
-            // Verificar si ya existen recetas recomendadas recientemente para este usuario
-            List<Recipe> recentRecipes = recipeRepository.findByRecommendedToUsersId(userId);
-            if (!recentRecipes.isEmpty()) {
-                logger.debug("📚 Usuario {} ya tiene {} recetas en historial", userId, recentRecipes.size());
+        // Cada receta se emite en cuanto OpenAI cierra su objeto JSON
+        rateLimiter.acquire(userId);
+        List<OpenAiRecipeResponse> recipes = new ArrayList<>();
+        IncrementalRecipeArrayParser parser = responseParser.newStreamParser();
+        try {
+            streamOpenAiApi(promptBuilder.build(request), content -> {
+                for (OpenAiRecipeResponse recipe : parser.feed(content)) {
+                    if (recipes.size() < request.getMaxRecipes()) {
+                        assignOpenAiId(recipe);
+                        recipes.add(recipe);
+                        onRecipe.accept(recipe);
+                    }
+                }
+            });
+            responseParser.recordStream(parser);
+            recommendationCache.put(cacheKey, recipes);
+            userRecommendationCache.put(userId, version, recipes, request.getPreferences());
+            if (!recipes.isEmpty()) {
+                similarityIndex.index(cacheKey, userRequest.get().profile());
+            }
+        } catch (LlmUnavailableException e) {
+            if (recipes.isEmpty()) {
+                logger.warn("⚠️ OpenAI no disponible, emitiendo historial como respaldo: {}", e.getMessage());
+                List<OpenAiRecipeResponse> fallback = fallbackFromHistory(userId);
+                fallback.forEach(onRecipe);
+                return fallback;
             }
+            // Stream cortado a medias: se conserva lo recibido pero no se cachea como respuesta completa
+            logger.warn("⚠️ Stream de OpenAI interrumpido tras {} recetas: {}", recipes.size(), e.getMessage());
+        }
 
-            OpenAiRecipeRequest request = OpenAiRecipeRequest.builder()
-                    .userId(userId)
-                    .availableIngredients(availableIngredientsForPrompt)
-                    .preferences(preferences)
-                    .maxRecipes(5)
-                    .build();
+        saveRecipesToHistory(recipes, userId, request.getPreferences());
+        logger.info("✅ {} recetas emitidas en stream para usuario {}", recipes.size(), userId);
+        return recipes;
+    }
 
-            List<OpenAiRecipeResponse> recipes = getRecipeRecommendations(request);
+    /** Petición construida desde la despensa junto a su huella canónica y su perfil para el índice de similitud. */
+    private record PreparedRequest(OpenAiRecipeRequest request, String cacheKey,
+                                   List<EnhancedIngredientInfo> ingredients, PantrySimilarityIndex.PantryProfile profile) {
+    }
 
-            // Actualizar tiempo de última solicitud
-            userLastRequestTime.put(userId, System.currentTimeMillis());
+    /**
+     * Se ejecuta solo si la clave exacta no está en caché: primero intenta reutilizar las recetas
+     * de una despensa casi idéntica, después las recetas guardadas que la despensa cubre
+     * y, si no hay suficientes, llama a OpenAI e indexa la despensa.
+     */
+    private List<OpenAiRecipeResponse> generateForPantry(PreparedRequest prepared) {
+        Optional<List<OpenAiRecipeResponse>> reused = findSimilarPantryRecipes(prepared)
+                .or(() -> findLocalRecipes(prepared));
+        if (reused.isPresent()) {
+            return reused.get();
+        }
+        List<OpenAiRecipeResponse> recipes = generateRecipes(prepared.request());
+        if (!recipes.isEmpty()) {
+            similarityIndex.index(prepared.cacheKey(), prepared.profile());
+        }
+        return recipes;
+    }
 
-            return recipes;
+    private Optional<List<OpenAiRecipeResponse>> findLocalRecipes(PreparedRequest prepared) {
+        OpenAiRecipeRequest request = prepared.request();
+        List<Recipe> matches = localRecipeMatcher.findBestMatches(prepared.ingredients(), request.getPreferences(), request.getMaxRecipes());
+        if (matches.isEmpty()) {
+            return Optional.empty();
+        }
+        logger.info("📚 {} recetas guardadas cubren la despensa del usuario {}, sin llamar a OpenAI", matches.size(), request.getUserId());
+        return Optional.of(matches.stream().map(this::toRecipeResponse).collect(Collectors.toList()));
+    }
 
-        } catch (Exception e) {
-            logger.error("❌ Error obteniendo recomendaciones para usuario {}: {}", userId, e.getMessage(), e);
-            return Collections.emptyList();
+    private Optional<List<OpenAiRecipeResponse>> findSimilarPantryRecipes(PreparedRequest prepared) {
+        return similarityIndex.findSimilar(prepared.profile())
+                .flatMap(recommendationCache::get)
+                .map(recipes -> {
+                    logger.info("🧭 Reutilizando recetas de una despensa similar para usuario {}", prepared.request().getUserId());
+                    return recipes;
+                });
+    }
+
+    /**
+     * Construye la petición a partir de la despensa y el perfil del usuario.
+     * Vacío si el usuario no tiene ingredientes.
+     */
+    private Optional<PreparedRequest> buildRequestForUser(Long userId) {
+        // Obtener ingredientes del usuario CON INFORMACIÓN MEJORADA
+        List<PantryItem> pantryItems = pantryItemRepository.findByUserId(userId);
+        List<EnhancedIngredientInfo> enhancedIngredients = pantryItems.stream()
+                .map(this::mapToEnhancedIngredientInfo)
+                .sorted(RecipePromptBuilder.pantryPriority())
+                .collect(Collectors.toList());
+
+        List<String> availableIngredientsForPrompt = enhancedIngredients.stream()
+                .map(this::formatIngredientForPrompt)
+                .collect(Collectors.toList());
+
+        // DEBUG: Mostrar ingredientes del usuario
+        logger.debug("🧪 Usuario {} tiene ingredientes mejorados: {}", userId, availableIngredientsForPrompt);
+        enhancedIngredients.forEach(ingredient ->
+                logger.debug("  - EN: '{}', ES: '{}', Cantidad: {} {}",
+                        ingredient.getEnglishName(),
+                        ingredient.getSpanishName(),
+                        ingredient.getQuantity(),
+                        ingredient.getUnit())
+        );
+
+        if (enhancedIngredients.isEmpty()) {
+            logger.warn("❌ Usuario {} no tiene ingredientes en la despensa", userId);
+            return Optional.empty();
         }
+
+        // Obtener preferencias del usuario
+        UserProfileDto userProfileDto = userProfileService.findByUserId(userId)
+                .orElse(UserProfileDto.builder().build());
+
+        UserPreferencesDto preferences = UserPreferencesDto.builder()
+                .allergies(userProfileDto.getAllergies() != null ? userProfileDto.getAllergies() : Collections.emptyList())
+                .intolerances(userProfileDto.getIntolerances() != null ? userProfileDto.getIntolerances() : Collections.emptyList())
+                .dislikedIngredients(userProfileDto.getDislikedIngredients() != null ? userProfileDto.getDislikedIngredients() : Collections.emptyList())
+                .dietType(userProfileDto.getDietType())
+                .build();
+
+        OpenAiRecipeRequest request = OpenAiRecipeRequest.builder()
+                .userId(userId)
+                .availableIngredients(availableIngredientsForPrompt)
+                .preferences(preferences)
+                .maxRecipes(5)
+                .build();
+
+        String cacheKey = RecommendationFingerprint.forPantry(enhancedIngredients, preferences, request.getMaxRecipes());
+        PantrySimilarityIndex.PantryProfile profile = PantrySimilarityIndex.PantryProfile.of(enhancedIngredients, preferences);
+        return Optional.of(new PreparedRequest(request, cacheKey, enhancedIngredients, profile));
     }
 
     private EnhancedIngredientInfo mapToEnhancedIngredientInfo(PantryItem pantryItem) {
         Ingredient ingredient = pantryItem.getIngredient();
         return EnhancedIngredientInfo.builder()
+                .ingredientId(ingredient.getId())
                 .englishName(ingredient.getName())
                 .spanishName(ingredient.getNameEs())
                 .unit(ingredient.getUnit())
                 .quantity(pantryItem.getQuantity())
                 .imageUrl(ingredient.getImageUrl())
+                .expiryDate(ingredient.getExpiryDate())
                 .build();
     }
 
@@ -187,264 +331,107 @@ public class OpenAiRecipeServiceImpl implements OpenAiRecipeService {
         return formatted.toString();
     }
 
-    private String generateCacheKey(OpenAiRecipeRequest request) {
-        String ingredientsKey = String.join(",", request.getAvailableIngredients());
-        String preferencesKey = "";
-
-        if (request.getPreferences() != null) {
-            UserPreferencesDto prefs = request.getPreferences();
-            preferencesKey = String.join(",",
-                    prefs.getAllergies() != null ? prefs.getAllergies() : Collections.emptyList()) +
-                    String.join(",", prefs.getIntolerances() != null ? prefs.getIntolerances() : Collections.emptyList()) +
-                    String.join(",", prefs.getDislikedIngredients() != null ? prefs.getDislikedIngredients() : Collections.emptyList()) +
-                    (prefs.getDietType() != null ? prefs.getDietType() : "");
-        }
-
-        return (ingredientsKey + preferencesKey).hashCode() + "_" + request.getUserId();
-    }
-
-    private List<OpenAiRecipeResponse> getCachedRecipes(String cacheKey, Long userId) {
-        Long lastRequestTime = userLastRequestTime.get(userId);
-        if (lastRequestTime != null && (System.currentTimeMillis() - lastRequestTime) < CACHE_DURATION_MS) {
-            return recipeCache.get(cacheKey);
-        }
-        return null;
+    private String callOpenAiApi(RecipePromptBuilder.RecipePrompt prompt) {
+        logger.debug("Llamando a API de OpenAI...");
+        return chatClient.complete(buildChatRequestBody(prompt, false));
     }
 
-    private void cacheRecipes(String cacheKey, List<OpenAiRecipeResponse> recipes, Long userId) {
-        recipeCache.put(cacheKey, recipes);
-        userLastRequestTime.put(userId, System.currentTimeMillis());
-        logger.debug("💾 Recetas guardadas en caché para usuario: {}", userId);
+    /**
+     * Llamada a OpenAI con stream=true: entrega cada fragmento de contenido según llega.
+     */
+    private void streamOpenAiApi(RecipePromptBuilder.RecipePrompt prompt, Consumer<String> onContent) {
+        logger.debug("Llamando a API de OpenAI en modo stream...");
+        chatClient.stream(buildChatRequestBody(prompt, true), onContent);
     }
 
-    private boolean isRecentRequest(Long userId) {
-        Long lastRequest = userLastRequestTime.get(userId);
-        return lastRequest != null && (System.currentTimeMillis() - lastRequest) < CACHE_DURATION_MS;
-    }
-
-    private String buildRecipePrompt(OpenAiRecipeRequest request) {
-        logger.debug("Construyendo prompt de recetas MEJORADO...");
-        StringBuilder prompt = new StringBuilder();
-
-        prompt.append("Como chef experto, genera ").append(request.getMaxRecipes())
-                .append(" recetas de cocina prácticas, creativas y deliciosas usando principalmente estos ingredientes:\n\n");
-
-        // Lista detallada de ingredientes
-        for (String ingredient : request.getAvailableIngredients()) {
-            prompt.append("• ").append(ingredient).append("\n");
+    private Map<String, Object> buildChatRequestBody(RecipePromptBuilder.RecipePrompt prompt, boolean stream) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        // Prefijo estático primero: idéntico en todas las llamadas
+        requestBody.put("messages", List.of(
+                Map.of("role", "system", "content", prompt.system()),
+                Map.of("role", "user", "content", prompt.user())));
+        requestBody.put("max_tokens", prompt.maxTokens());
+        requestBody.put("temperature", 0.7);
+        if (structuredOutput) {
+            // El modelo solo puede devolver JSON que cumpla el esquema de recetas
+            requestBody.put("response_format", RecipeResponseParser.RESPONSE_FORMAT);
         }
-
-        prompt.append("\nINFORMACIÓN DE INGREDIENTES:\n");
-        prompt.append("- Los ingredientes se muestran en formato: 'NombreInglés (NombreEspañol) - Cantidad Unidad'\n");
-        prompt.append("- Usa ambos nombres (inglés y español) como referencia\n");
-        prompt.append("- Considera las cantidades disponibles para las proporciones\n\n");
-
-        if (request.getPreferences() != null) {
-            UserPreferencesDto prefs = request.getPreferences();
-
-            if (prefs.getAllergies() != null && !prefs.getAllergies().isEmpty()) {
-                prompt.append("🚫 EXCLUIR ABSOLUTAMENTE estos alimentos por alergias: ")
-                        .append(String.join(", ", prefs.getAllergies())).append("\n");
-            }
-            if (prefs.getIntolerances() != null && !prefs.getIntolerances().isEmpty()) {
-                prompt.append("🚫 EXCLUIR estos ingredientes por intolerancias: ")
-                        .append(String.join(", ", prefs.getIntolerances())).append("\n");
-            }
-            if (prefs.getDislikedIngredients() != null && !prefs.getDislikedIngredients().isEmpty()) {
-                prompt.append("👎 Evitar estos ingredientes que no le gustan al usuario: ")
-                        .append(String.join(", ", prefs.getDislikedIngredients())).append("\n");
-            }
-            if (prefs.getDietType() != null && !prefs.getDietType().isEmpty()) {
-                prompt.append("🥗 Respetar estrictamente dieta: ").append(prefs.getDietType()).append("\n");
-            }
-            prompt.append("\n");
+        if (stream) {
+            requestBody.put("stream", true);
+            requestBody.put("stream_options", Map.of("include_usage", true));
         }
-
-        prompt.append("IMPORTANTE CRÍTICO: Las recetas deben ser ESPECÍFICAS y DETALLADAS. No uses descripciones genéricas.");
-        prompt.append("\n\nINSTRUCCIONES ESPECÍFICAS PARA LAS RECETAS:");
-        prompt.append("\n- description: Debe ser detallada, mencionar sabores, texturas, origen culinario, y por qué es especial");
-        prompt.append("\n- instructions: Deben ser PASOS ESPECÍFICOS con temperaturas exactas, tiempos de cocción, técnicas culinarias");
-        prompt.append("\n- ingredients: Incluir cantidades aproximadas y preparaciones específicas (ej: 'cebolla picada finamente', 'ajo machacado')");
-        prompt.append("\n- preparationTime: Tiempo real considerando preparación y cocción");
-
-        prompt.append("\n\nFORMATO EXACTO REQUERIDO - Devuelve SOLO un array JSON válido:");
-        prompt.append("\n- title: string (nombre creativo y específico EN ESPAÑOL)");
-        prompt.append("\n- description: string (descripción detallada de sabores, texturas, origen EN ESPAÑOL)");
-        prompt.append("\n- ingredients: array de strings (con cantidades y preparaciones EN ESPAÑOL: '2 cebollas picadas', '3 dientes de ajo machacados')");
-        prompt.append("\n- instructions: array de strings (pasos numerados ESPECÍFICOS con tiempos y temperaturas EN ESPAÑOL)");
-        prompt.append("\n- preparationTime: number (tiempo total real en minutos)");
-        prompt.append("\n- difficulty: string (fácil, medio, difícil)");
-        prompt.append("\n- category: string (desayuno, almuerzo, cena, postre, etc.)");
-
-        prompt.append("\n\nEJEMPLO DE FORMATO CORRECTO (MUY ESPECÍFICO):\n");
-        prompt.append("""
-                [
-                  {
-                    "title": "Risotto Cremoso de Champiñones Silvestres",
-                    "description": "Risotto italiano cremoso con una mezcla de champiñones silvestres salteados en mantequilla y ajo, terminado con queso parmesano rallado y perejil fresco. La textura es cremosa y los champiñones aportan un sabor terroso y umami.",
-                    "ingredients": [
-                      "1 taza de arroz arbóreo",
-                      "300g de mezcla de champiñones silvestres (portobello, shiitake, cremini)",
-                      "1 cebolla picada finamente",
-                      "3 dientes de ajo machacados",
-                      "1/2 taza de vino blanco seco",
-                      "4 tazas de caldo de vegetales caliente",
-                      "1/2 taza de queso parmesano rallado",
-                      "3 cucharadas de mantequilla",
-                      "2 cucharadas de aceite de oliva",
-                      "Sal y pimienta negra al gusto",
-                      "Perejil fresco picado para decorar"
-                    ],
-                    "instructions": [
-                      "1. Calentar el caldo de vegetales en una olla y mantenerlo caliente a fuego bajo",
-                      "2. En una cazuela grande, calentar el aceite de oliva y 1 cucharada de mantequilla a fuego medio",
-                      "3. Saltear la cebolla picada por 5 minutos hasta que esté transparente, añadir el ajo y cocinar 1 minuto más",
-                      "4. Añadir los champiñones laminados y saltear por 8-10 minutos hasta que estén dorados",
-                      "5. Incorporar el arroz arbóreo y tostar durante 2 minutos, revolviendo constantemente",
-                      "6. Verter el vino blanco y cocinar hasta que se evapore completamente",
-                      "7. Añadir el caldo caliente, un cucharón a la vez, revolviendo constantemente hasta que el líquido sea absorbido antes de añadir más (proceso de 18-20 minutos)",
-                      "8. Cuando el arroz esté al dente y cremoso, retirar del fuego y añadir el parmesano y la mantequilla restante",
-                      "9. Tapar y dejar reposar 2 minutos antes de servir con perejil fresco"
-                    ],
-                    "preparationTime": 45,
-                    "difficulty": "medio",
-                    "category": "almuerzo"
-                  }
-                ]
-                """);
-
-        return prompt.toString();
+        return requestBody;
     }
 
-    private String callOpenAiApi(String prompt) {
-        try {
-            logger.debug("Llamando a API de OpenAI...");
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(openaiApiKey);
-
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-3.5-turbo");
-            requestBody.put("messages", List.of(Map.of("role", "user", "content", prompt)));
-            requestBody.put("max_tokens", 4000);
-            requestBody.put("temperature", 0.7);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            ResponseEntity<Map> response = restTemplate.exchange(openaiApiUrl, HttpMethod.POST, entity, Map.class);
-            logger.debug("✅ Respuesta recibida de OpenAI");
-
-            return extractContentFromResponse(response);
-        } catch (Exception e) {
-            logger.error("❌ Error llamando a API de OpenAI: {}", e.getMessage(), e);
-            return "[]";
+    private List<OpenAiRecipeResponse> fallbackFromHistory(Long userId) {
+        if (userId == null) {
+            return Collections.emptyList();
         }
-    }
-
-    private String extractContentFromResponse(ResponseEntity<Map> response) {
-        try {
-            Map<String, Object> responseBody = response.getBody();
-            if (responseBody != null && responseBody.containsKey("choices")) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) responseBody.get("choices");
-                if (choices != null && !choices.isEmpty()) {
-                    Map<String, Object> firstChoice = choices.get(0);
-                    Map<String, Object> message = (Map<String, Object>) firstChoice.get("message");
-                    return (String) message.get("content");
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error extrayendo contenido de respuesta OpenAI: {}", e.getMessage());
+        List<Long> latestIds = recipeRepository.findLatestRecommendedIds(userId, HISTORY_FALLBACK_SIZE);
+        if (latestIds.isEmpty()) {
+            return Collections.emptyList();
         }
-        return "[]";
+        return recipeRepository.findByIdInOrderByIdDesc(latestIds).stream()
+                .map(this::toRecipeResponse)
+                .collect(Collectors.toList());
     }
 
-    private List<OpenAiRecipeResponse> parseAiResponse(String aiResponse) {
-        try {
-            String cleanResponse = aiResponse.replace("```json", "").replace("```", "").trim();
-            List<OpenAiRecipeResponse> recipes = objectMapper.readValue(
-                    cleanResponse,
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, OpenAiRecipeResponse.class)
-            );
-            logger.debug("✅ {} recetas parseadas exitosamente", recipes.size());
-            return recipes;
-        } catch (JsonProcessingException e) {
-            logger.error("❌ Error parseando respuesta OpenAI: {}", e.getMessage());
-            logger.debug("Raw response: {}", aiResponse);
-            return Collections.emptyList();
-        } catch (Exception e) {
-            logger.error("❌ Error inesperado parseando respuesta: {}", e.getMessage(), e);
-            return Collections.emptyList();
-        }
+    private OpenAiRecipeResponse toRecipeResponse(Recipe recipe) {
+        return OpenAiRecipeResponse.builder()
+                .openAiId(recipe.getOpenAiId())
+                .title(recipe.getTitle())
+                .description(recipe.getDescription())
+                .ingredients(recipe.getIngredientNames() != null ? List.copyOf(recipe.getIngredientNames()) : Collections.emptyList())
+                .instructions(recipe.getInstructions() != null ? List.of(recipe.getInstructions().split("\n")) : Collections.emptyList())
+                .preparationTime(recipe.getPreparationTime())
+                .difficulty(recipe.getDifficulty())
+                .category(recipe.getCategory())
+                .build();
     }
 
-    private void saveRecipesToHistory(List<OpenAiRecipeResponse> aiRecipes, Long userId) {
+    /**
+     * Guarda las recetas y las asocia al usuario. Las recetas nuevas se etiquetan con la dieta
+     * y las restricciones para las que se generaron, así el motor local puede filtrarlas por perfil.
+     */
+    private void saveRecipesToHistory(List<OpenAiRecipeResponse> aiRecipes, Long userId, UserPreferencesDto preferences) {
         try {
-            User user = userRepository.findById(userId).orElse(null);
-            if (user == null) {
-                logger.warn("❌ Usuario no encontrado para ID: {}", userId);
-                return;
-            }
-
-            for (OpenAiRecipeResponse aiRecipe : aiRecipes) {
-                String openAiId = generateOpenAiId(aiRecipe);
-                logger.debug("🔑 Generated OpenAiId: {} for recipe: {}", openAiId, aiRecipe.getTitle());
-
-                Optional<Recipe> existingRecipeOpt = recipeRepository.findByOpenAiId(openAiId);
-                Recipe existingRecipe;
-
-                if (existingRecipeOpt.isEmpty()) {
-                    Recipe newRecipe = Recipe.builder()
+            String dietType = preferences != null ? preferences.getDietType() : null;
+            Set<String> dietTags = dietType != null && !dietType.isBlank()
+                    ? Set.of(dietType.trim().toUpperCase(Locale.ROOT)) : Set.of();
+            Set<String> exclusions = RecommendationFingerprint.exclusions(preferences);
+            List<Recipe> recipes = aiRecipes.stream()
+                    .map(aiRecipe -> Recipe.builder()
                             .title(aiRecipe.getTitle())
                             .description(aiRecipe.getDescription())
-                            .instructions(String.join("\n", aiRecipe.getInstructions()))
+                            .instructions(aiRecipe.getInstructions() != null ? String.join("\n", aiRecipe.getInstructions()) : null)
                             .preparationTime(aiRecipe.getPreparationTime())
                             .category(aiRecipe.getCategory())
                             .difficulty(aiRecipe.getDifficulty())
                             .source("openai")
-                            .openAiId(openAiId)
+                            .openAiId(aiRecipe.getOpenAiId() != null ? aiRecipe.getOpenAiId() : generateOpenAiId(aiRecipe))
                             .ingredientNames(aiRecipe.getIngredients())
-                            .recommendedToUsers(new ArrayList<>())
-                            .build();
-                    existingRecipe = recipeRepository.save(newRecipe);
-                    logger.debug("✅ Nueva receta guardada: {} con ID: {}", aiRecipe.getTitle(), openAiId);
-                } else {
-                    existingRecipe = existingRecipeOpt.get();
-                    logger.debug("✅ Receta ya existente: {} con ID: {}", aiRecipe.getTitle(), openAiId);
-                }
-
-                if (existingRecipe.getRecommendedToUsers() == null) {
-                    existingRecipe.setRecommendedToUsers(new ArrayList<>());
-                }
-
-                boolean userAlreadyAssociated = existingRecipe.getRecommendedToUsers()
-                        .stream()
-                        .anyMatch(u -> u.getId().equals(userId));
+                            .dietTags(dietTags)
+                            .exclusions(exclusions)
+                            .build())
+                    .collect(Collectors.toList());
 
-                if (!userAlreadyAssociated) {
-                    existingRecipe.getRecommendedToUsers().add(user);
-                    recipeRepository.save(existingRecipe);
-                    logger.debug("✅ Receta asociada al usuario: {} → Usuario {}", aiRecipe.getTitle(), userId);
-                }
-            }
-            logger.info("💾 Historial de recetas guardado para usuario {}", userId);
+            // Escritura diferida: la respuesta no espera a la base de datos
+            historyWriter.enqueue(userId, recipes);
+            logger.debug("💾 Historial de recetas encolado para usuario {}", userId);
         } catch (Exception e) {
             logger.error("❌ Error guardando recetas en historial: {}", e.getMessage(), e);
         }
     }
 
-    private String generateOpenAiId(OpenAiRecipeResponse recipe) {
-        try {
-            String base = recipe.getTitle() + "|" +
-                    String.join(",", recipe.getIngredients()) + "|" +
-                    System.currentTimeMillis();
-
-            byte[] encodedBytes = Base64.getEncoder().encode(base.getBytes());
-            String encoded = new String(encodedBytes);
-
-            return encoded.replaceAll("[^a-zA-Z0-9]", "").substring(0, Math.min(32, encoded.length()));
-        } catch (Exception e) {
-            String fallback = "recipe_" + recipe.getTitle().hashCode() + "_" + UUID.randomUUID().toString();
-            return fallback.replaceAll("[^a-zA-Z0-9]", "").substring(0, Math.min(32, fallback.length()));
+    private void assignOpenAiId(OpenAiRecipeResponse recipe) {
+        if (recipe.getOpenAiId() == null) {
+            recipe.setOpenAiId(generateOpenAiId(recipe));
         }
     }
+
+    // Mismo contenido => mismo id: regenerar una receta reutiliza su fila en lugar de duplicarla
+    private String generateOpenAiId(OpenAiRecipeResponse recipe) {
+        return RecipeIdentity.of(recipe.getTitle(), recipe.getIngredients());
+    }
 }
\ No newline at end of file
@@ -3,12 +3,14 @@ package es.luigi.chefsitoLuigi.Service.Impl;
 import es.luigi.chefsitoLuigi.Dto.PantryItemCreateRequest;
 import es.luigi.chefsitoLuigi.Dto.PantryItemResponse;
 import es.luigi.chefsitoLuigi.Entity.*;
+import es.luigi.chefsitoLuigi.Event.PantryChangedEvent;
 import es.luigi.chefsitoLuigi.Exception.ResourceNotFoundException;
 import es.luigi.chefsitoLuigi.Repository.*;
 import es.luigi.chefsitoLuigi.Service.PantryService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -23,6 +25,7 @@ public class PantryServiceImpl implements PantryService {
     private final PantryItemRepository pantryItemRepository;
     private final UserRepository userRepository;
     private final IngredientRepository ingredientRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public PantryItemResponse addItem(PantryItemCreateRequest createRequest, Long userId) {
@@ -43,6 +46,7 @@ public class PantryServiceImpl implements PantryService {
         PantryItem saved = pantryItemRepository.save(item);
         logger.info("✅ Item agregado a despensa: usuario {}, ingrediente {}, cantidad {}",
                 user.getId(), ingredient.getName(), createRequest.getQuantity());
+        eventPublisher.publishEvent(new PantryChangedEvent(userId));
 
         return mapToResponse(saved);
     }
@@ -83,6 +87,7 @@ public class PantryServiceImpl implements PantryService {
         PantryItem saved = pantryItemRepository.save(item);
 
         logger.info("✅ Cantidad actualizada: item {}, nueva cantidad {}", id, quantity);
+        eventPublisher.publishEvent(new PantryChangedEvent(userId));
 
         return mapToResponse(saved);
     }
@@ -102,6 +107,7 @@ public class PantryServiceImpl implements PantryService {
 
         pantryItemRepository.delete(item);
         logger.info("✅ Item eliminado: {}", id);
+        eventPublisher.publishEvent(new PantryChangedEvent(userId));
     }
 
     /**
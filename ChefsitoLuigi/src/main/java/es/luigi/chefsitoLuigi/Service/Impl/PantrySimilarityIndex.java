@@ -0,0 +1,220 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Índice aproximado de despensas recientes (MinHash + LSH por bandas).
+ * Permite reutilizar las recetas de una despensa casi idéntica (Jaccard sobre los ids
+ * de ingrediente) siempre que sus restricciones sean compatibles: la despensa indexada
+ * excluye al menos lo mismo que la consultada y sigue la misma dieta.
+ * Solo se indexan despensas cuyas recetas generó realmente OpenAI.
+ */
+@Component
+@RequiredArgsConstructor
+public class PantrySimilarityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PantrySimilarityIndex.class);
+
+    // Semilla fija: las firmas son comparables entre reinicios
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendations.similarity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendations.similarity.threshold:0.8}")
+    private double threshold;
+
+    @Value("${recommendations.similarity.bands:16}")
+    private int bands;
+
+    @Value("${recommendations.similarity.rows-per-band:4}")
+    private int rowsPerBand;
+
+    @Value("${recommendations.similarity.max-entries:5000}")
+    private long maxEntries;
+
+    @Value("${recommendations.similarity.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private long[] hashSeeds;
+    private Cache<String, IndexedPantry> entries;
+    private List<ConcurrentHashMap<Long, Set<String>>> bandBuckets;
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    /** Conjunto de ingredientes y restricciones de una despensa, ya normalizados. */
+    public record PantryProfile(Set<Long> ingredientIds, Set<String> exclusions, String diet) {
+
+        public static PantryProfile of(List<EnhancedIngredientInfo> ingredients, UserPreferencesDto preferences) {
+            Set<Long> ids = ingredients.stream()
+                    .map(EnhancedIngredientInfo::getIngredientId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toUnmodifiableSet());
+            String diet = preferences != null ? RecommendationFingerprint.normalize(preferences.getDietType()) : "";
+            return new PantryProfile(ids, RecommendationFingerprint.exclusions(preferences), diet);
+        }
+    }
+
+    private record IndexedPantry(PantryProfile profile, long[] bandHashes) {
+    }
+
+    @PostConstruct
+    void init() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        hashSeeds = random.longs((long) bands * rowsPerBand).toArray();
+        bandBuckets = new ArrayList<>(bands);
+        for (int i = 0; i < bands; i++) {
+            bandBuckets.add(new ConcurrentHashMap<>());
+        }
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .executor(Runnable::run)
+                .removalListener((String key, IndexedPantry pantry, RemovalCause cause) -> {
+                    // Misma clave => misma huella => mismas bandas: al reemplazar no hay nada que limpiar
+                    if (pantry != null && cause != RemovalCause.REPLACED) {
+                        unregister(key, pantry);
+                    }
+                })
+                .build();
+        meterRegistry.gauge("recommendations.similarity.entries", entries, Cache::estimatedSize);
+        hitCounter = meterRegistry.counter("recommendations.similarity", "result", "hit");
+        missCounter = meterRegistry.counter("recommendations.similarity", "result", "miss");
+        logger.info("🧭 Índice de similitud de despensas: {}, umbral Jaccard {}, {} bandas x {} filas",
+                enabled ? "activo" : "desactivado", threshold, bands, rowsPerBand);
+    }
+
+    /**
+     * Devuelve la clave de caché de la despensa indexada más parecida que supere el umbral
+     * y tenga restricciones compatibles.
+     */
+    public Optional<String> findSimilar(PantryProfile profile) {
+        if (!enabled || profile.ingredientIds().isEmpty()) {
+            return Optional.empty();
+        }
+
+        long[] bandHashes = bandHashes(profile.ingredientIds());
+        Set<String> candidates = new HashSet<>();
+        for (int band = 0; band < bands; band++) {
+            Set<String> bucket = bandBuckets.get(band).get(bandHashes[band]);
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+
+        String bestKey = null;
+        double bestSimilarity = threshold;
+        for (String candidateKey : candidates) {
+            IndexedPantry candidate = entries.getIfPresent(candidateKey);
+            if (candidate == null || !isCompatible(candidate.profile(), profile)) {
+                continue;
+            }
+            // La firma solo preselecciona: la similitud final es exacta
+            double similarity = jaccard(candidate.profile().ingredientIds(), profile.ingredientIds());
+            if (similarity >= bestSimilarity) {
+                bestSimilarity = similarity;
+                bestKey = candidateKey;
+            }
+        }
+
+        if (bestKey == null) {
+            missCounter.increment();
+            return Optional.empty();
+        }
+        hitCounter.increment();
+        logger.debug("🧭 Despensa similar encontrada (Jaccard {}) entre {} candidatas", bestSimilarity, candidates.size());
+        return Optional.of(bestKey);
+    }
+
+    public void index(String cacheKey, PantryProfile profile) {
+        if (!enabled || profile.ingredientIds().isEmpty()) {
+            return;
+        }
+        IndexedPantry pantry = new IndexedPantry(profile, bandHashes(profile.ingredientIds()));
+        for (int band = 0; band < bands; band++) {
+            bandBuckets.get(band).compute(pantry.bandHashes()[band], (hash, keys) -> {
+                Set<String> bucket = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                bucket.add(cacheKey);
+                return bucket;
+            });
+        }
+        entries.put(cacheKey, pantry);
+    }
+
+    private void unregister(String cacheKey, IndexedPantry pantry) {
+        for (int band = 0; band < bands; band++) {
+            bandBuckets.get(band).computeIfPresent(pantry.bandHashes()[band], (hash, keys) -> {
+                keys.remove(cacheKey);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    // Las recetas indexadas ya evitan todo lo que evita quien pregunta, y con la misma dieta
+    private boolean isCompatible(PantryProfile indexed, PantryProfile requested) {
+        return indexed.diet().equals(requested.diet())
+                && indexed.exclusions().containsAll(requested.exclusions());
+    }
+
+    static double jaccard(Set<Long> a, Set<Long> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        int intersection = 0;
+        for (Long id : a) {
+            if (b.contains(id)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    private long[] bandHashes(Set<Long> ingredientIds) {
+        long[] signature = new long[hashSeeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (Long id : ingredientIds) {
+            for (int i = 0; i < hashSeeds.length; i++) {
+                long hash = mix(id ^ hashSeeds[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+
+        long[] result = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long hash = band;
+            for (int row = 0; row < rowsPerBand; row++) {
+                hash = mix(hash * 31 + signature[band * rowsPerBand + row]);
+            }
+            result[band] = hash;
+        }
+        return result;
+    }
+
+    // Finalizador de SplitMix64: dispersa bien valores consecutivos como los ids
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,115 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import java.util.*;
+
+/**
+ * Trie radix (cadenas de un solo hijo comprimidas en una arista) para autocompletar por prefijo.
+ * Cada clave lleva "rangos": posiciones en un orden global de relevancia, donde menor es mejor.
+ * Cada nodo guarda ya calculados los topK rangos de todo su subárbol, así que completar un
+ * prefijo es bajar por él y devolver la lista del nodo, sin recorrer descendientes.
+ * Inmutable una vez construido; para cambiar el catálogo se construye otro y se sustituye.
+ */
+public final class RadixTrie {
+
+    private static final int[] NONE = new int[0];
+
+    private final Node root;
+
+    private RadixTrie(Node root) {
+        this.root = root;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Los mejores rangos (ascendentes, como mucho limit) de las claves que empiezan por el prefijo. */
+    public int[] complete(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = Arrays.binarySearch(node.firstChars, prefix.charAt(i));
+            if (index < 0) {
+                return NONE;
+            }
+            Node child = node.children[index];
+            int length = Math.min(child.label.length(), prefix.length() - i);
+            if (!prefix.regionMatches(i, child.label, 0, length)) {
+                return NONE;
+            }
+            i += length;
+            node = child;
+        }
+        return Arrays.copyOf(node.top, Math.min(limit, node.top.length));
+    }
+
+    private static final class Node {
+        private final String label;
+        private final char[] firstChars;
+        private final Node[] children;
+        private final int[] top;
+
+        Node(String label, char[] firstChars, Node[] children, int[] top) {
+            this.label = label;
+            this.firstChars = firstChars;
+            this.children = children;
+            this.top = top;
+        }
+    }
+
+    /**
+     * Acumula las claves en un trie por carácter y al construir comprime las cadenas
+     * y calcula el top de cada nodo de abajo arriba.
+     */
+    public static final class Builder {
+
+        private final MutableNode root = new MutableNode();
+
+        public Builder add(String key, int rank) {
+            if (key == null || key.isEmpty()) {
+                return this;
+            }
+            MutableNode node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new MutableNode());
+            }
+            node.ranks.add(rank);
+            return this;
+        }
+
+        public RadixTrie build(int topK) {
+            return new RadixTrie(freeze(root, "", topK, false));
+        }
+
+        private static Node freeze(MutableNode node, String label, int topK, boolean compress) {
+            StringBuilder edge = new StringBuilder(label);
+            // Comprimir (salvo la raíz): mientras no haya claves que terminen aquí y solo haya un camino
+            while (compress && node.ranks.isEmpty() && node.children.size() == 1) {
+                Map.Entry<Character, MutableNode> only = node.children.firstEntry();
+                edge.append(only.getKey());
+                node = only.getValue();
+            }
+
+            char[] firstChars = new char[node.children.size()];
+            Node[] children = new Node[node.children.size()];
+            TreeSet<Integer> best = new TreeSet<>(node.ranks);
+            int i = 0;
+            for (Map.Entry<Character, MutableNode> entry : node.children.entrySet()) {
+                firstChars[i] = entry.getKey();
+                children[i] = freeze(entry.getValue(), String.valueOf(entry.getKey()), topK, true);
+                for (int rank : children[i].top) {
+                    best.add(rank);
+                }
+                i++;
+            }
+            int[] top = best.stream().limit(topK).mapToInt(Integer::intValue).toArray();
+            return new Node(edge.toString(), firstChars, children, top);
+        }
+    }
+
+    private static final class MutableNode {
+        // TreeMap: los hijos quedan ordenados por carácter para la búsqueda binaria
+        private final TreeMap<Character, MutableNode> children = new TreeMap<>();
+        private final Set<Integer> ranks = new HashSet<>(2);
+    }
+}
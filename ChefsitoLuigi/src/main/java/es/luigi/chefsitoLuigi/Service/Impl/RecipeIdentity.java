@@ -0,0 +1,41 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import es.luigi.chefsitoLuigi.Util.TextNormalizer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Identidad de receta por contenido: hash del título y de los ingredientes normalizados.
+ * La misma receta generada dos veces (aunque cambien mayúsculas, tildes u orden de
+ * ingredientes) recibe el mismo openAiId y se guarda una sola vez.
+ */
+public final class RecipeIdentity {
+
+    private RecipeIdentity() {
+    }
+
+    /** 32 caracteres hex (128 bits del SHA-256). */
+    public static String of(String title, List<String> ingredients) {
+        TreeSet<String> canonicalIngredients = new TreeSet<>();
+        if (ingredients != null) {
+            ingredients.stream()
+                    .filter(Objects::nonNull)
+                    .map(TextNormalizer::fold)
+                    .filter(ingredient -> !ingredient.isEmpty())
+                    .forEach(canonicalIngredients::add);
+        }
+        String canonical = TextNormalizer.fold(title) + "|" + String.join(",", canonicalIngredients);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
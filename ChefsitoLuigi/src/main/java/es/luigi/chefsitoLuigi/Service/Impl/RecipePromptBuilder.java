@@ -0,0 +1,121 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeRequest;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Construye el prompt de recetas con un presupuesto de tokens.
+ * Las instrucciones y el formato son un prefijo estático (mensaje de sistema) calculado una sola vez,
+ * idéntico en todas las llamadas; la parte variable (ingredientes y restricciones) va en el
+ * mensaje de usuario y se recorta para no pasar del presupuesto.
+ */
+@Component
+public class RecipePromptBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipePromptBuilder.class);
+
+    static final String SYSTEM_PROMPT = """
+            Eres un chef experto. Generas recetas prácticas, creativas y ESPECÍFICAS (nada genérico) \
+            usando principalmente los ingredientes que te indique el usuario.
+
+            Los ingredientes llegan como 'NombreInglés (NombreEspañol) - Cantidad Unidad': usa ambos nombres \
+            como referencia y respeta las cantidades disponibles. Las restricciones del usuario son obligatorias.
+
+            Cada receta:
+            - title: nombre creativo y específico
+            - description: sabores, texturas, origen y por qué es especial
+            - ingredients: array de strings con cantidades y preparación ('2 cebollas picadas finamente')
+            - instructions: array de pasos numerados con tiempos, temperaturas y técnicas
+            - preparationTime: number, minutos totales reales
+            - difficulty: fácil, medio o difícil
+            - category: desayuno, almuerzo, cena, postre, etc.
+
+            Todo el texto EN ESPAÑOL. Devuelve SOLO un objeto JSON válido {"recipes": [...]}, sin texto adicional. Ejemplo de formato:
+            {"recipes":[{"title":"Risotto Cremoso de Champiñones","description":"Risotto italiano cremoso con champiñones salteados en mantequilla y ajo; textura untuosa y sabor umami.","ingredients":["1 taza de arroz arbóreo","300g de champiñones laminados","1 cebolla picada finamente"],"instructions":["1. Sofreír la cebolla 5 minutos a fuego medio","2. Añadir los champiñones y dorar 8 minutos","3. Tostar el arroz 2 minutos e ir añadiendo caldo caliente durante 18 minutos"],"preparationTime":45,"difficulty":"medio","category":"almuerzo"}]}""";
+
+    private static final int SYSTEM_PROMPT_TOKENS = estimateTokens(SYSTEM_PROMPT);
+
+    @Value("${openai.prompt.max-input-tokens:1200}")
+    private int maxInputTokens;
+
+    @Value("${openai.prompt.tokens-per-recipe:450}")
+    private int tokensPerRecipe;
+
+    @Value("${openai.prompt.output-overhead-tokens:100}")
+    private int outputOverheadTokens;
+
+    public record RecipePrompt(String system, String user, int maxTokens) {
+    }
+
+    /**
+     * Estimación barata de tokens (~4 caracteres por token en textos latinos).
+     * Suficiente para presupuestar sin cargar un tokenizador.
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * Ordena la despensa por interés para el prompt: primero lo que caduca antes
+     * y, a igual caducidad, lo que hay en más cantidad. Lo que no cabe en el presupuesto es lo último.
+     */
+    public static Comparator<EnhancedIngredientInfo> pantryPriority() {
+        return Comparator.comparing(EnhancedIngredientInfo::getExpiryDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder()))
+                .thenComparing(EnhancedIngredientInfo::getQuantity, Comparator.nullsLast(Comparator.<Double>reverseOrder()));
+    }
+
+    public RecipePrompt build(OpenAiRecipeRequest request) {
+        StringBuilder user = new StringBuilder();
+        user.append("Genera ").append(request.getMaxRecipes()).append(" recetas.\n");
+        appendRestrictions(user, request.getPreferences());
+        user.append("Ingredientes disponibles:\n");
+
+        // Los ingredientes ya vienen ordenados por prioridad: se añaden hasta agotar el presupuesto
+        int budget = maxInputTokens - SYSTEM_PROMPT_TOKENS - estimateTokens(user.toString());
+        List<String> ingredients = request.getAvailableIngredients() != null ? request.getAvailableIngredients() : List.of();
+        int included = 0;
+        for (String ingredient : ingredients) {
+            String line = "• " + ingredient + "\n";
+            int cost = estimateTokens(line);
+            if (cost > budget && included > 0) {
+                break;
+            }
+            user.append(line);
+            budget -= cost;
+            included++;
+        }
+        if (included < ingredients.size()) {
+            logger.debug("✂️ Prompt recortado: {} de {} ingredientes caben en el presupuesto de {} tokens",
+                    included, ingredients.size(), maxInputTokens);
+        }
+
+        int maxTokens = outputOverheadTokens + tokensPerRecipe * Math.max(1, request.getMaxRecipes());
+        return new RecipePrompt(SYSTEM_PROMPT, user.toString(), maxTokens);
+    }
+
+    private void appendRestrictions(StringBuilder user, UserPreferencesDto prefs) {
+        if (prefs == null) {
+            return;
+        }
+        if (prefs.getAllergies() != null && !prefs.getAllergies().isEmpty()) {
+            user.append("🚫 EXCLUIR ABSOLUTAMENTE por alergias: ").append(String.join(", ", prefs.getAllergies())).append("\n");
+        }
+        if (prefs.getIntolerances() != null && !prefs.getIntolerances().isEmpty()) {
+            user.append("🚫 EXCLUIR por intolerancias: ").append(String.join(", ", prefs.getIntolerances())).append("\n");
+        }
+        if (prefs.getDislikedIngredients() != null && !prefs.getDislikedIngredients().isEmpty()) {
+            user.append("👎 Evitar (no le gustan): ").append(String.join(", ", prefs.getDislikedIngredients())).append("\n");
+        }
+        if (prefs.getDietType() != null && !prefs.getDietType().isEmpty()) {
+            user.append("🥗 Respetar estrictamente dieta: ").append(prefs.getDietType()).append("\n");
+        }
+    }
+}
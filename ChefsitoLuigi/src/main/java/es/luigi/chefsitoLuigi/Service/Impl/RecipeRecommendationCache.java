@@ -0,0 +1,294 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Exception.LlmUnavailableException;
+import es.luigi.chefsitoLuigi.Exception.RateLimitExceededException;
+import es.luigi.chefsitoLuigi.Repository.RecommendationCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Caché acotada de recomendaciones generadas por OpenAI.
+ * Limitada por peso (KB aproximados de las recetas), con TTL por entrada
+ * y lecturas sin bloqueo. Las métricas se publican como cache.* con name=recipeRecommendations.
+ * Las peticiones concurrentes con la misma clave comparten una única llamada en curso.
+ * Detrás hay una segunda capa (L2) en PostgreSQL compartida entre instancias y
+ * que sobrevive a reinicios; si la base de datos falla se trata como un fallo de caché.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecipeRecommendationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipeRecommendationCache.class);
+    private static final String CACHE_NAME = "recipeRecommendations";
+
+    private static final TypeReference<List<OpenAiRecipeResponse>> RECIPE_LIST = new TypeReference<>() {};
+
+    private final MeterRegistry meterRegistry;
+    private final RecommendationCacheRepository cacheRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${recommendations.cache.max-weight-kb:8192}")
+    private long maxWeightKb;
+
+    @Value("${recommendations.cache.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${recommendations.single-flight.wait-timeout-seconds:60}")
+    private long waitTimeoutSeconds;
+
+    @Value("${recommendations.cache.l2.enabled:true}")
+    private boolean l2Enabled;
+
+    @Value("${recommendations.cache.l2.ttl-hours:24}")
+    private long l2TtlHours;
+
+    private Cache<String, List<OpenAiRecipeResponse>> cache;
+    private final ConcurrentMap<String, CompletableFuture<List<OpenAiRecipeResponse>>> inFlight = new ConcurrentHashMap<>();
+    private Counter coalescedCounter;
+    private Counter waitTimeoutCounter;
+    private Counter rateLimitedRetryCounter;
+    private Counter l2HitCounter;
+    private Counter l2MissCounter;
+    private Counter l2ErrorCounter;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightKb)
+                .weigher((String key, List<OpenAiRecipeResponse> recipes) -> estimateWeightKb(recipes))
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        meterRegistry.gauge("recommendations.single_flight.in_flight", inFlight, ConcurrentMap::size);
+        coalescedCounter = meterRegistry.counter("recommendations.single_flight.coalesced");
+        waitTimeoutCounter = meterRegistry.counter("recommendations.single_flight.wait_timeouts");
+        rateLimitedRetryCounter = meterRegistry.counter("recommendations.single_flight.rate_limited_retries");
+        l2HitCounter = meterRegistry.counter("recommendations.cache.l2", "result", "hit");
+        l2MissCounter = meterRegistry.counter("recommendations.cache.l2", "result", "miss");
+        l2ErrorCounter = meterRegistry.counter("recommendations.cache.l2", "result", "error");
+        logger.info("💾 Caché de recomendaciones: máximo {} KB, TTL {} min, L2 {} (TTL {} h)",
+                maxWeightKb, ttlMinutes, l2Enabled ? "activa" : "desactivada", l2TtlHours);
+    }
+
+    public Optional<List<OpenAiRecipeResponse>> get(String key) {
+        List<OpenAiRecipeResponse> cached = cache.getIfPresent(key);
+        if (cached == null) {
+            cached = loadFromL2(key);
+        }
+        return Optional.ofNullable(cached);
+    }
+
+    public void put(String key, List<OpenAiRecipeResponse> recipes) {
+        // No cacheamos respuestas vacías: suelen ser errores transitorios de OpenAI
+        if (recipes == null || recipes.isEmpty()) {
+            return;
+        }
+        List<OpenAiRecipeResponse> copy = List.copyOf(recipes);
+        cache.put(key, copy);
+        storeInL2(key, copy);
+    }
+
+    /**
+     * Devuelve las recetas cacheadas o las genera. Si ya hay una generación en curso
+     * para la misma clave, espera su resultado en lugar de lanzar otra llamada a OpenAI.
+     * Si la generación compartida se rechaza por el límite de su usuario, quien esperaba
+     * lo vuelve a intentar con su propio generador (y su propio cupo) en vez de heredar el 429.
+     * Si la espera se agota o se interrumpe lanza LlmUnavailableException, igual que una llamada
+     * fallida a OpenAI: así se aplica el respaldo del historial y no se sirve una lista vacía.
+     */
+    public List<OpenAiRecipeResponse> getOrGenerate(String key, Supplier<List<OpenAiRecipeResponse>> generator) {
+        while (true) {
+            List<OpenAiRecipeResponse> cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            CompletableFuture<List<OpenAiRecipeResponse>> call = new CompletableFuture<>();
+            CompletableFuture<List<OpenAiRecipeResponse>> existing = inFlight.putIfAbsent(key, call);
+            if (existing == null) {
+                return generate(key, call, generator);
+            }
+            Optional<List<OpenAiRecipeResponse>> shared = awaitInFlight(key, existing);
+            if (shared.isPresent()) {
+                return shared.get();
+            }
+            rateLimitedRetryCounter.increment();
+            logger.debug("🔁 La generación compartida para clave {} superó el límite de otro usuario, reintentando", key);
+        }
+    }
+
+    private List<OpenAiRecipeResponse> generate(String key, CompletableFuture<List<OpenAiRecipeResponse>> call,
+                                                Supplier<List<OpenAiRecipeResponse>> generator) {
+        try {
+            // Otro hilo pudo terminar entre la lectura y el registro de la llamada
+            List<OpenAiRecipeResponse> recipes = cache.getIfPresent(key);
+            if (recipes == null) {
+                recipes = loadFromL2(key);
+            }
+            if (recipes == null) {
+                recipes = generator.get();
+                put(key, recipes);
+            }
+            call.complete(recipes);
+            return recipes;
+        } catch (RuntimeException e) {
+            // Se desregistra antes de avisar para que los reintentos no vuelvan a encontrar esta llamada
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /** Vacío si la llamada compartida se rechazó por el límite de su usuario y hay que reintentar. */
+    private Optional<List<OpenAiRecipeResponse>> awaitInFlight(String key, CompletableFuture<List<OpenAiRecipeResponse>> call) {
+        coalescedCounter.increment();
+        logger.debug("🔗 Esperando generación en curso para clave {}", key);
+        // copy(): cancelar o expirar la espera de este hilo no afecta a la llamada compartida
+        CompletableFuture<List<OpenAiRecipeResponse>> waiter = call.copy();
+        try {
+            return Optional.of(waiter.get(waitTimeoutSeconds, TimeUnit.SECONDS));
+        } catch (TimeoutException e) {
+            waitTimeoutCounter.increment();
+            waiter.cancel(false);
+            logger.warn("⏰ Tiempo de espera agotado ({} s) esperando recetas para clave {}", waitTimeoutSeconds, key);
+            throw new LlmUnavailableException("Tiempo de espera agotado esperando la generación en curso", e);
+        } catch (InterruptedException e) {
+            waiter.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new LlmUnavailableException("Espera de la generación en curso interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RateLimitExceededException) {
+                return Optional.empty();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+        if (l2Enabled) {
+            try {
+                cacheRepository.deleteByKey(key);
+            } catch (Exception e) {
+                l2ErrorCounter.increment();
+                logger.warn("⚠️ No se pudo invalidar la clave {} en la caché persistente: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Borra en segundo plano las filas caducadas de la caché persistente.
+     */
+    @Scheduled(fixedDelayString = "${recommendations.cache.l2.cleanup-interval-ms:600000}",
+            initialDelayString = "${recommendations.cache.l2.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        if (!l2Enabled) {
+            return;
+        }
+        try {
+            int deleted = cacheRepository.deleteExpired(Instant.now());
+            if (deleted > 0) {
+                logger.info("🧹 {} entradas caducadas eliminadas de la caché persistente", deleted);
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Error limpiando la caché persistente: {}", e.getMessage());
+        }
+    }
+
+    /** Busca en L2 y, si hay acierto, lo sube a L1. Devuelve null en fallo o error. */
+    private List<OpenAiRecipeResponse> loadFromL2(String key) {
+        if (!l2Enabled) {
+            return null;
+        }
+        try {
+            Optional<List<OpenAiRecipeResponse>> stored = cacheRepository.findByCacheKeyAndExpiresAtAfter(key, Instant.now())
+                    .map(entry -> deserialize(entry.getPayload()));
+            if (stored.isEmpty() || stored.get().isEmpty()) {
+                l2MissCounter.increment();
+                return null;
+            }
+            l2HitCounter.increment();
+            logger.debug("💽 Acierto en caché persistente para clave {}", key);
+            List<OpenAiRecipeResponse> recipes = List.copyOf(stored.get());
+            cache.put(key, recipes);
+            return recipes;
+        } catch (Exception e) {
+            l2ErrorCounter.increment();
+            logger.warn("⚠️ Error leyendo la caché persistente para clave {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void storeInL2(String key, List<OpenAiRecipeResponse> recipes) {
+        if (!l2Enabled) {
+            return;
+        }
+        try {
+            Instant now = Instant.now();
+            cacheRepository.upsert(key, objectMapper.writeValueAsString(recipes), now, now.plus(Duration.ofHours(l2TtlHours)));
+        } catch (Exception e) {
+            l2ErrorCounter.increment();
+            logger.warn("⚠️ Error guardando en la caché persistente la clave {}: {}", key, e.getMessage());
+        }
+    }
+
+    private List<OpenAiRecipeResponse> deserialize(String payload) {
+        try {
+            return objectMapper.readValue(payload, RECIPE_LIST);
+        } catch (Exception e) {
+            throw new IllegalStateException("Payload de caché ilegible", e);
+        }
+    }
+
+    private int estimateWeightKb(List<OpenAiRecipeResponse> recipes) {
+        long chars = 0;
+        for (OpenAiRecipeResponse recipe : recipes) {
+            chars += length(recipe.getTitle()) + length(recipe.getDescription())
+                    + length(recipe.getDifficulty()) + length(recipe.getCategory());
+            chars += length(recipe.getIngredients()) + length(recipe.getInstructions());
+        }
+        // 2 bytes por char + cabeceras de objetos; mínimo 1 KB por entrada
+        return (int) Math.max(1, (chars * 2 + 256L * recipes.size()) / 1024);
+    }
+
+    private static long length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static long length(List<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        long total = 0;
+        for (String value : values) {
+            total += length(value);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,144 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Util.JsonSchemas;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lee el array de recetas de OpenAI con el parser en streaming de Jackson, objeto a objeto.
+ * Si max_tokens corta el array se conservan todas las recetas que llegaron completas,
+ * y una receta que no cumple el esquema se descarta sin perder el resto.
+ * El esquema se genera de OpenAiRecipeResponse y es el mismo que se envía como response_format;
+ * solo se exige entero con structured output activo. Sin él el modelo no está obligado a cumplirlo,
+ * así que basta con title, ingredients e instructions.
+ * Métricas: openai.parse{result=complete|truncated|failed}, openai.parse.recipes_dropped
+ * y openai.schema.violations.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecipeResponseParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipeResponseParser.class);
+
+    // openAiId lo asignamos nosotros, no el modelo
+    public static final Map<String, Object> RECIPE_SCHEMA = JsonSchemas.forClass(OpenAiRecipeResponse.class, Set.of("openAiId"));
+    public static final Map<String, Object> RESPONSE_FORMAT =
+            JsonSchemas.responseFormat("recipes", JsonSchemas.arrayWrapper("recipes", RECIPE_SCHEMA));
+    // Mismos tipos, pero solo lo imprescindible es obligatorio y se admiten campos extra
+    public static final Map<String, Object> MINIMAL_RECIPE_SCHEMA = Map.of(
+            "type", "object",
+            "properties", RECIPE_SCHEMA.get("properties"),
+            "required", List.of("title", "ingredients", "instructions"));
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${openai.structured-output.enabled:true}")
+    private boolean structuredOutput;
+
+    private Counter completeCounter;
+    private Counter truncatedCounter;
+    private Counter failedCounter;
+    private Counter droppedCounter;
+    private Counter schemaViolationCounter;
+
+    @PostConstruct
+    void init() {
+        completeCounter = meterRegistry.counter("openai.parse", "result", "complete");
+        truncatedCounter = meterRegistry.counter("openai.parse", "result", "truncated");
+        failedCounter = meterRegistry.counter("openai.parse", "result", "failed");
+        droppedCounter = meterRegistry.counter("openai.parse.recipes_dropped");
+        schemaViolationCounter = meterRegistry.counter("openai.schema.violations");
+    }
+
+    public List<OpenAiRecipeResponse> parse(String aiResponse) {
+        List<OpenAiRecipeResponse> recipes = new ArrayList<>();
+        // Todo lo anterior al '[' (```json, texto libre...) se ignora
+        int start = aiResponse != null ? aiResponse.indexOf('[') : -1;
+        if (start < 0) {
+            failedCounter.increment();
+            logger.error("❌ Respuesta de OpenAI sin array de recetas");
+            logger.debug("Raw response: {}", aiResponse);
+            return recipes;
+        }
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(aiResponse.substring(start))) {
+            parser.nextToken();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new JsonEOFException(parser, null, "Array de recetas sin cerrar");
+                }
+                // Se lee como árbol: un error de tipos en una receta no desalinea el parser
+                JsonNode node = parser.readValueAsTree();
+                if (!conformsToSchema(node)) {
+                    droppedCounter.increment();
+                    continue;
+                }
+                try {
+                    recipes.add(objectMapper.treeToValue(node, OpenAiRecipeResponse.class));
+                } catch (IOException e) {
+                    droppedCounter.increment();
+                    logger.warn("⚠️ Receta descartada por campos inválidos: {}", e.getMessage());
+                }
+            }
+            completeCounter.increment();
+            logger.debug("✅ {} recetas parseadas exitosamente", recipes.size());
+        } catch (JsonEOFException e) {
+            // Respuesta cortada: la receta a medias se pierde, las anteriores se aprovechan
+            truncatedCounter.increment();
+            droppedCounter.increment();
+            logger.warn("✂️ Respuesta de OpenAI truncada, se conservan {} recetas completas", recipes.size());
+        } catch (IOException e) {
+            failedCounter.increment();
+            logger.error("❌ Error parseando respuesta OpenAI tras {} recetas: {}", recipes.size(), e.getMessage());
+            logger.debug("Raw response: {}", aiResponse);
+        }
+        return recipes;
+    }
+
+    /** Parser incremental para respuestas en stream, con la misma validación de esquema. */
+    public IncrementalRecipeArrayParser newStreamParser() {
+        return new IncrementalRecipeArrayParser(objectMapper, this::conformsToSchema);
+    }
+
+    private boolean conformsToSchema(JsonNode node) {
+        List<String> errors = JsonSchemas.validate(node, structuredOutput ? RECIPE_SCHEMA : MINIMAL_RECIPE_SCHEMA);
+        if (errors.isEmpty()) {
+            return true;
+        }
+        schemaViolationCounter.increment();
+        logger.warn("⚠️ Receta descartada por no cumplir el esquema: {}", errors.get(0));
+        return false;
+    }
+
+    /**
+     * Registra cómo terminó un stream: si el array no llegó a cerrarse se cuenta como truncado.
+     */
+    public void recordStream(IncrementalRecipeArrayParser streamParser) {
+        if (streamParser.isComplete()) {
+            completeCounter.increment();
+        } else {
+            truncatedCounter.increment();
+        }
+        droppedCounter.increment(streamParser.getDiscarded());
+    }
+}
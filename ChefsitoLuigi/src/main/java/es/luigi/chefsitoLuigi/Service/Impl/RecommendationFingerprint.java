@@ -0,0 +1,122 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeRequest;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Huella canónica de una petición de recomendaciones, usada como clave de caché.
+ * No depende del orden de los ingredientes, agrupa las cantidades por potencias de 2
+ * (450 g y 500 g caen en el mismo tramo), normaliza las preferencias y no incluye
+ * el usuario: dos despensas equivalentes comparten recetas.
+ * El resultado son los primeros 128 bits de un SHA-256 en hexadecimal.
+ */
+public final class RecommendationFingerprint {
+
+    // Cambiar la versión invalida todas las claves anteriores
+    private static final String VERSION = "v1";
+
+    private RecommendationFingerprint() {
+    }
+
+    /** Para peticiones construidas desde la despensa: se usan los ids de ingrediente. */
+    public static String forPantry(List<EnhancedIngredientInfo> ingredients, UserPreferencesDto preferences, int maxRecipes) {
+        TreeSet<String> tokens = new TreeSet<>();
+        for (EnhancedIngredientInfo ingredient : ingredients) {
+            String identity = ingredient.getIngredientId() != null
+                    ? "id:" + ingredient.getIngredientId()
+                    : "name:" + normalize(ingredient.getEnglishName());
+            tokens.add(identity + "@" + quantityBucket(ingredient.getQuantity()));
+        }
+        return hash(tokens, preferences, maxRecipes);
+    }
+
+    /** Para peticiones libres (texto del cliente): se usan los nombres normalizados. */
+    public static String forRequest(OpenAiRecipeRequest request) {
+        TreeSet<String> tokens = new TreeSet<>();
+        if (request.getAvailableIngredients() != null) {
+            for (String ingredient : request.getAvailableIngredients()) {
+                String normalized = normalize(ingredient);
+                if (!normalized.isEmpty()) {
+                    tokens.add("text:" + normalized);
+                }
+            }
+        }
+        return hash(tokens, request.getPreferences(), request.getMaxRecipes());
+    }
+
+    /**
+     * Alergias, intolerancias e ingredientes no deseados, normalizados y en un solo conjunto.
+     * Es lo que se guarda con cada receta como restricciones con las que se generó.
+     */
+    public static Set<String> exclusions(UserPreferencesDto preferences) {
+        if (preferences == null) {
+            return Set.of();
+        }
+        return Stream.of(preferences.getAllergies(), preferences.getIntolerances(), preferences.getDislikedIngredients())
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .map(RecommendationFingerprint::normalize)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    static String quantityBucket(Double quantity) {
+        if (quantity == null || quantity <= 0 || quantity.isNaN() || quantity.isInfinite()) {
+            return "-";
+        }
+        return String.valueOf(Math.getExponent(quantity));
+    }
+
+    private static String hash(Collection<String> ingredientTokens, UserPreferencesDto preferences, int maxRecipes) {
+        StringBuilder canonical = new StringBuilder(VERSION);
+        canonical.append("|ingredients=").append(String.join(",", ingredientTokens));
+        if (preferences != null) {
+            canonical.append("|allergies=").append(normalizedSet(preferences.getAllergies()));
+            canonical.append("|intolerances=").append(normalizedSet(preferences.getIntolerances()));
+            canonical.append("|disliked=").append(normalizedSet(preferences.getDislikedIngredients()));
+            canonical.append("|diet=").append(normalize(preferences.getDietType()));
+        }
+        canonical.append("|max=").append(maxRecipes);
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static String normalizedSet(List<String> values) {
+        if (values == null) {
+            return "";
+        }
+        TreeSet<String> normalized = new TreeSet<>();
+        values.stream()
+                .filter(Objects::nonNull)
+                .map(RecommendationFingerprint::normalize)
+                .filter(value -> !value.isEmpty())
+                .forEach(normalized::add);
+        return String.join(",", normalized);
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
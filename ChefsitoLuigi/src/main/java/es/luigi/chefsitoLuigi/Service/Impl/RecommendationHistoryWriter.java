@@ -0,0 +1,65 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import es.luigi.chefsitoLuigi.Entity.Recipe;
+import es.luigi.chefsitoLuigi.Repository.RecipeHistoryJdbcRepository;
+import es.luigi.chefsitoLuigi.Repository.RecipeHistoryJdbcRepository.PendingRecommendation;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Guarda el historial de recomendaciones en segundo plano para que la respuesta HTTP
+ * no espere a la base de datos. Las escrituras de varias peticiones se agrupan en un lote.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationHistoryWriter {
+
+    private final RecipeHistoryJdbcRepository recipeHistoryRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendations.history.write-behind.capacity:1000}")
+    private int capacity;
+
+    @Value("${recommendations.history.write-behind.batch-size:50}")
+    private int batchSize;
+
+    @Value("${recommendations.history.write-behind.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${recommendations.history.write-behind.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${recommendations.history.write-behind.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Value("${recommendations.history.write-behind.shutdown-timeout-seconds:10}")
+    private long shutdownTimeoutSeconds;
+
+    private WriteBehindQueue<PendingRecommendation> queue;
+
+    @PostConstruct
+    void init() {
+        queue = new WriteBehindQueue<>("recommendationHistory", capacity, batchSize,
+                Duration.ofMillis(flushIntervalMs), maxRetries, Duration.ofMillis(retryBackoffMs),
+                Duration.ofSeconds(shutdownTimeoutSeconds), recipeHistoryRepository::saveRecommendations, meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        queue.close();
+    }
+
+    public void enqueue(Long userId, List<Recipe> recipes) {
+        if (recipes.isEmpty()) {
+            return;
+        }
+        queue.submit(new PendingRecommendation(userId, recipes));
+    }
+}
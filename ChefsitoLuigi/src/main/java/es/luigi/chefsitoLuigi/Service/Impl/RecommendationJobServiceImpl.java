@@ -0,0 +1,261 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeRequest;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.RecommendationJobDto;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.RecommendationJobStatus;
+import es.luigi.chefsitoLuigi.Exception.ResourceNotFoundException;
+import es.luigi.chefsitoLuigi.Service.OpenAiRecipeService;
+import es.luigi.chefsitoLuigi.Service.RecommendationJobService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta las recomendaciones en un pool dedicado para no bloquear los hilos de Tomcat.
+ * Los resultados se conservan con TTL y se pueden consultar por polling o por SSE.
+ * También sirve el modo stream, que emite cada receta por SSE según la genera OpenAI.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecommendationJobServiceImpl implements RecommendationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationJobServiceImpl.class);
+
+    private final OpenAiRecipeService openAiRecipeService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendations.jobs.threads:4}")
+    private int threads;
+
+    @Value("${recommendations.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${recommendations.jobs.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${recommendations.jobs.max-jobs:10000}")
+    private long maxJobs;
+
+    @Value("${recommendations.jobs.sse-timeout-seconds:120}")
+    private long sseTimeoutSeconds;
+
+    private ThreadPoolExecutor threadPool;
+    private ExecutorService executor;
+    private Cache<String, RecommendationJob> jobs;
+
+    @PostConstruct
+    void init() {
+        threadPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("recommendation-job-"));
+        threadPool.allowCoreThreadTimeOut(true);
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPool, "recommendationJobs");
+        jobs = Caffeine.newBuilder()
+                .maximumSize(maxJobs)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        threadPool.shutdown();
+        if (!threadPool.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("⚠️ Quedaron trabajos de recomendación sin terminar al apagar");
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Override
+    public RecommendationJobDto submit(OpenAiRecipeRequest request) {
+        return start(request.getUserId(), () -> openAiRecipeService.getRecipeRecommendations(request));
+    }
+
+    @Override
+    public RecommendationJobDto submitForUser(Long userId) {
+        return start(userId, () -> openAiRecipeService.getRecipeRecommendationsForUser(userId));
+    }
+
+    @Override
+    public Optional<RecommendationJobDto> findJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(RecommendationJob::toDto);
+    }
+
+    @Override
+    public SseEmitter subscribe(String jobId) {
+        RecommendationJob job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("RecommendationJob", "id", jobId);
+        }
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(sseTimeoutSeconds));
+        emitter.onCompletion(() -> job.removeSubscriber(emitter));
+        emitter.onTimeout(() -> job.removeSubscriber(emitter));
+        emitter.onError(e -> job.removeSubscriber(emitter));
+
+        // Si el trabajo ya terminó, se notifica inmediatamente
+        if (!job.addSubscriber(emitter)) {
+            send(emitter, job.toDto());
+        }
+        return emitter;
+    }
+
+    @Override
+    public SseEmitter streamForUser(Long userId) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(sseTimeoutSeconds));
+        AtomicBoolean clientGone = new AtomicBoolean(false);
+        emitter.onTimeout(() -> clientGone.set(true));
+        emitter.onError(e -> clientGone.set(true));
+
+        executor.execute(() -> {
+            try {
+                // Si el cliente se desconecta se sigue leyendo el stream para cachear lo ya pagado
+                List<OpenAiRecipeResponse> recipes = openAiRecipeService.streamRecipeRecommendationsForUser(userId, recipe -> {
+                    if (!clientGone.get() && !trySend(emitter, SseEmitter.event().name("recipe").data(recipe))) {
+                        clientGone.set(true);
+                    }
+                });
+                if (!clientGone.get() && trySend(emitter, SseEmitter.event().name("done").data(Map.of("count", recipes.size())))) {
+                    emitter.complete();
+                }
+            } catch (Exception e) {
+                logger.error("❌ Error en stream de recetas para usuario {}: {}", userId, e.getMessage(), e);
+                if (!clientGone.get() && trySend(emitter, SseEmitter.event().name("error").data(Map.of("error", String.valueOf(e.getMessage()))))) {
+                    emitter.complete();
+                }
+            }
+        });
+        logger.info("📡 Stream de recetas iniciado para usuario {}", userId);
+        return emitter;
+    }
+
+    private boolean trySend(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Cliente SSE desconectado: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private RecommendationJobDto start(Long userId, Supplier<List<OpenAiRecipeResponse>> generator) {
+        RecommendationJob job = new RecommendationJob(UUID.randomUUID().toString(), userId);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, generator));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            logger.warn("🚦 Cola de trabajos de recomendación llena, rechazando trabajo para usuario {}", userId);
+            throw e;
+        }
+        logger.info("🧾 Trabajo de recomendación {} encolado para usuario {}", job.id, userId);
+        return job.toDto();
+    }
+
+    private void run(RecommendationJob job, Supplier<List<OpenAiRecipeResponse>> generator) {
+        job.status = RecommendationJobStatus.RUNNING;
+        List<SseEmitter> subscribers;
+        try {
+            subscribers = job.finish(generator.get(), null);
+            logger.info("✅ Trabajo de recomendación {} completado", job.id);
+        } catch (Exception e) {
+            logger.error("❌ Trabajo de recomendación {} fallido: {}", job.id, e.getMessage(), e);
+            subscribers = job.finish(null, e.getMessage());
+        }
+
+        RecommendationJobDto result = job.toDto();
+        subscribers.forEach(emitter -> send(emitter, result));
+    }
+
+    private void send(SseEmitter emitter, RecommendationJobDto job) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(job.getJobId())
+                    .name(job.getStatus().name().toLowerCase())
+                    .data(job));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // El cliente ya se desconectó
+            logger.debug("Suscriptor SSE desconectado del trabajo {}: {}", job.getJobId(), e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static class RecommendationJob {
+        private final String id;
+        private final Long userId;
+        private final Instant createdAt = Instant.now();
+        private final List<SseEmitter> subscribers = new ArrayList<>();
+        private volatile RecommendationJobStatus status = RecommendationJobStatus.PENDING;
+        private volatile Instant completedAt;
+        private volatile List<OpenAiRecipeResponse> recipes;
+        private volatile String error;
+
+        RecommendationJob(String id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        /** Devuelve false si el trabajo ya terminó y no se registró el suscriptor. */
+        synchronized boolean addSubscriber(SseEmitter emitter) {
+            if (isFinished()) {
+                return false;
+            }
+            subscribers.add(emitter);
+            return true;
+        }
+
+        synchronized void removeSubscriber(SseEmitter emitter) {
+            subscribers.remove(emitter);
+        }
+
+        /** Marca el trabajo como terminado y devuelve los suscriptores pendientes de notificar. */
+        synchronized List<SseEmitter> finish(List<OpenAiRecipeResponse> result, String failure) {
+            recipes = result;
+            error = failure;
+            completedAt = Instant.now();
+            status = failure == null ? RecommendationJobStatus.COMPLETED : RecommendationJobStatus.FAILED;
+            List<SseEmitter> pending = List.copyOf(subscribers);
+            subscribers.clear();
+            return pending;
+        }
+
+        private boolean isFinished() {
+            return status == RecommendationJobStatus.COMPLETED || status == RecommendationJobStatus.FAILED;
+        }
+
+        RecommendationJobDto toDto() {
+            return RecommendationJobDto.builder()
+                    .jobId(id)
+                    .userId(userId)
+                    .status(status)
+                    .createdAt(createdAt)
+                    .completedAt(completedAt)
+                    .recipes(recipes)
+                    .error(error)
+                    .build();
+        }
+    }
+}
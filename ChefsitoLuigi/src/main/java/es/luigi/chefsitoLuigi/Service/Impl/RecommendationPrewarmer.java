@@ -0,0 +1,137 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import es.luigi.chefsitoLuigi.Event.PantryChangedEvent;
+import es.luigi.chefsitoLuigi.Event.UserProfileChangedEvent;
+import es.luigi.chefsitoLuigi.Service.OpenAiRecipeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+
+/**
+ * Regenera en segundo plano las recomendaciones de un usuario cuando cambia su despensa o su perfil,
+ * para que al abrir la página de recetas ya estén en caché.
+ * Los cambios seguidos de un mismo usuario se agrupan (debounce) y como mucho
+ * max-concurrency precalentamientos llaman a OpenAI a la vez.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationPrewarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationPrewarmer.class);
+
+    private final OpenAiRecipeService openAiRecipeService;
+    private final ChatCompletionBackend chatClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendations.prewarm.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendations.prewarm.debounce-ms:3000}")
+    private long debounceMs;
+
+    @Value("${recommendations.prewarm.max-concurrency:2}")
+    private int maxConcurrency;
+
+    private final ConcurrentMap<Long, PendingPrewarm> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+    private Semaphore permits;
+    private Counter scheduledCounter;
+    private Counter coalescedCounter;
+    private Counter deferredCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("prewarm-timer-"));
+        workers = Executors.newFixedThreadPool(maxConcurrency, new CustomizableThreadFactory("prewarm-"));
+        permits = new Semaphore(maxConcurrency);
+        meterRegistry.gauge("recommendations.prewarm.pending", pending, ConcurrentMap::size);
+        scheduledCounter = meterRegistry.counter("recommendations.prewarm", "result", "scheduled");
+        coalescedCounter = meterRegistry.counter("recommendations.prewarm", "result", "coalesced");
+        deferredCounter = meterRegistry.counter("recommendations.prewarm", "result", "deferred");
+        failedCounter = meterRegistry.counter("recommendations.prewarm", "result", "failed");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @EventListener
+    public void onPantryChanged(PantryChangedEvent event) {
+        if (!enabled || event.userId() == null) {
+            return;
+        }
+        schedule(event.userId());
+    }
+
+    @EventListener
+    public void onProfileChanged(UserProfileChangedEvent event) {
+        if (!enabled || event.userId() == null) {
+            return;
+        }
+        schedule(event.userId());
+    }
+
+    // Cada cambio reinicia la ventana del usuario: solo se precalienta tras debounce-ms sin cambios
+    private void schedule(Long userId) {
+        pending.compute(userId, (id, previous) -> {
+            if (previous != null && previous.future.cancel(false)) {
+                coalescedCounter.increment();
+            } else {
+                scheduledCounter.increment();
+            }
+            PendingPrewarm next = new PendingPrewarm();
+            next.future = scheduler.schedule(() -> fire(id, next), debounceMs, TimeUnit.MILLISECONDS);
+            return next;
+        });
+    }
+
+    private void fire(Long userId, PendingPrewarm self) {
+        // Si ya no es la programación vigente, un cambio posterior la sustituyó: se deja a esa
+        if (!pending.remove(userId, self)) {
+            return;
+        }
+        if (chatClient.isCircuitOpen()) {
+            logger.debug("🔌 Precalentamiento omitido para usuario {}: OpenAI no disponible", userId);
+            return;
+        }
+        // Sin hueco libre se aplaza otra ventana en vez de encolar llamadas sin límite
+        if (!permits.tryAcquire()) {
+            deferredCounter.increment();
+            schedule(userId);
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    openAiRecipeService.prewarmRecommendationsForUser(userId);
+                } catch (Exception e) {
+                    failedCounter.increment();
+                    logger.warn("⚠️ Error precalentando recomendaciones para usuario {}: {}", userId, e.getMessage());
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+        }
+    }
+
+    // Identidad de cada programación: un disparo que ya no se pudo cancelar solo se retira a sí mismo
+    private static final class PendingPrewarm {
+        private ScheduledFuture<?> future;
+    }
+}
@@ -0,0 +1,68 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Modo RECORD: delega en el backend real y guarda en disco cada llamada que termina bien.
+ * Un fallo al grabar no afecta a la respuesta.
+ */
+public class RecordingChatBackend implements ChatCompletionBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordingChatBackend.class);
+
+    private final ChatCompletionBackend delegate;
+    private final ChatRecordingStore store;
+    private final Counter recordedCounter;
+
+    public RecordingChatBackend(ChatCompletionBackend delegate, ChatRecordingStore store, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.store = store;
+        this.recordedCounter = meterRegistry.counter("openai.backend.recorded");
+    }
+
+    @Override
+    public String complete(Map<String, Object> requestBody) {
+        String content = delegate.complete(requestBody);
+        record(ChatRecordingStore.Kind.COMPLETE, requestBody, List.of(content));
+        return content;
+    }
+
+    @Override
+    public void stream(Map<String, Object> requestBody, Consumer<String> onContent) {
+        List<String> chunks = new ArrayList<>();
+        delegate.stream(requestBody, chunk -> {
+            chunks.add(chunk);
+            onContent.accept(chunk);
+        });
+        record(ChatRecordingStore.Kind.STREAM, requestBody, chunks);
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return delegate.isConfigured();
+    }
+
+    @Override
+    public boolean isCircuitOpen() {
+        return delegate.isCircuitOpen();
+    }
+
+    private void record(ChatRecordingStore.Kind kind, Map<String, Object> requestBody, List<String> chunks) {
+        try {
+            String key = store.keyFor(kind, requestBody);
+            store.save(new ChatRecordingStore.Recording(key, kind, requestBody, chunks));
+            recordedCounter.increment();
+            logger.debug("📼 Llamada a OpenAI grabada: {}", key);
+        } catch (Exception e) {
+            logger.warn("⚠️ No se pudo grabar la llamada a OpenAI: {}", e.getMessage());
+        }
+    }
+}
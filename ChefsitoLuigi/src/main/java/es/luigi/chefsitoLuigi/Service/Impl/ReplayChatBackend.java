@@ -0,0 +1,99 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import es.luigi.chefsitoLuigi.Exception.LlmUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Modo REPLAY: responde con las grabaciones de disco sin tocar la red.
+ * Añade una latencia configurable (más jitter) antes de responder y entre fragmentos del stream
+ * para que las pruebas de carga se parezcan a OpenAI.
+ * Sin grabación exacta falla con LlmUnavailableException, o si matchAnyOnMiss está activo
+ * sirve una grabación fija elegida por la clave (útil con despensas sintéticas).
+ */
+public class ReplayChatBackend implements ChatCompletionBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayChatBackend.class);
+
+    private final ChatRecordingStore store;
+    private final Map<String, ChatRecordingStore.Recording> recordings = new HashMap<>();
+    private final List<ChatRecordingStore.Recording> allRecordings;
+    private final boolean matchAnyOnMiss;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final long chunkDelayMs;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public ReplayChatBackend(ChatRecordingStore store, boolean matchAnyOnMiss, Duration latency, Duration jitter,
+                             Duration chunkDelay, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.allRecordings = store.loadAll();
+        this.allRecordings.forEach(recording -> recordings.put(recording.key(), recording));
+        this.matchAnyOnMiss = matchAnyOnMiss;
+        this.latencyMs = latency.toMillis();
+        this.jitterMs = jitter.toMillis();
+        this.chunkDelayMs = chunkDelay.toMillis();
+        this.hitCounter = meterRegistry.counter("openai.backend.replay", "result", "hit");
+        this.missCounter = meterRegistry.counter("openai.backend.replay", "result", "miss");
+        logger.info("📼 Replay de OpenAI con {} grabaciones, latencia {} ms (±{} ms)", recordings.size(), latencyMs, jitterMs);
+    }
+
+    @Override
+    public String complete(Map<String, Object> requestBody) {
+        ChatRecordingStore.Recording recording = find(ChatRecordingStore.Kind.COMPLETE, requestBody);
+        pause(latencyMs + jitter());
+        return String.join("", recording.chunks());
+    }
+
+    @Override
+    public void stream(Map<String, Object> requestBody, Consumer<String> onContent) {
+        ChatRecordingStore.Recording recording = find(ChatRecordingStore.Kind.STREAM, requestBody);
+        pause(latencyMs + jitter());
+        for (String chunk : recording.chunks()) {
+            pause(chunkDelayMs);
+            onContent.accept(chunk);
+        }
+    }
+
+    private ChatRecordingStore.Recording find(ChatRecordingStore.Kind kind, Map<String, Object> requestBody) {
+        String key = store.keyFor(kind, requestBody);
+        ChatRecordingStore.Recording recording = recordings.get(key);
+        if (recording != null) {
+            hitCounter.increment();
+            return recording;
+        }
+        missCounter.increment();
+        if (!matchAnyOnMiss || allRecordings.isEmpty()) {
+            throw new LlmUnavailableException("Sin grabación para la petición " + key);
+        }
+        List<ChatRecordingStore.Recording> sameKind = allRecordings.stream()
+                .filter(candidate -> candidate.kind() == kind)
+                .toList();
+        List<ChatRecordingStore.Recording> candidates = sameKind.isEmpty() ? allRecordings : sameKind;
+        return candidates.get(Math.floorMod(key.hashCode(), candidates.size()));
+    }
+
+    private long jitter() {
+        return jitterMs > 0 ? ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1) : 0;
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmUnavailableException("Replay de OpenAI interrumpido", e);
+        }
+    }
+}
@@ -10,7 +10,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -18,8 +17,12 @@ public class SmartIngredientSearchService {
 
     private static final Logger logger = LoggerFactory.getLogger(SmartIngredientSearchService.class);
 
+    // Resultados si quien llama no pide un límite (búsqueda por voz)
+    private static final int DEFAULT_LIMIT = 20;
+
     private final IngredientRepository ingredientRepository;
     private final IngredientMapper ingredientMapper;
+    private final IngredientSearchIndex searchIndex;
 
     // Mapa de traducciones comunes para agregar dinámicamente
     private final Map<String, String> commonTranslations = Map.ofEntries(
@@ -61,17 +64,22 @@ public class SmartIngredientSearchService {
     );
 
     public List<IngredientDto> searchIngredients(String query, String language) {
+        return searchIngredients(query, language, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Los limit mejores resultados, ordenados por nivel de coincidencia (exacta, prefijo,
+     * subcadena, fonética, typo) y por uso en despensas.
+     */
+    public List<IngredientDto> searchIngredients(String query, String language, int limit) {
         String cleanQuery = query.toLowerCase().trim();
-        logger.debug("🔍 Búsqueda inteligente: '{}' en idioma: {}", cleanQuery, language);
+        logger.debug("🔍 Búsqueda inteligente: '{}' en idioma: {} (máx. {})", cleanQuery, language, limit);
 
-        // Primero buscar en la base de datos existente
-        List<IngredientDto> results = ingredientRepository.findAll().stream()
-                .filter(ingredient -> matchesIngredient(ingredient, cleanQuery, language))
-                .map(ingredientMapper::toDto)
-                .collect(Collectors.toList());
+        // Primero buscar en el índice residente del catálogo
+        List<IngredientDto> results = searchIndex.search(cleanQuery, limit);
 
         // Si no hay resultados, intentar agregar el ingrediente dinámicamente
-        if (results.isEmpty() && canAddIngredientDynamically(cleanQuery)) {
+        if (results.isEmpty() && limit > 0 && canAddIngredientDynamically(cleanQuery)) {
             logger.info("🆕 Ingrediente no encontrado, intentando agregar dinámicamente: {}", cleanQuery);
             Optional<Ingredient> newIngredient = addIngredientDynamically(cleanQuery, language);
             if (newIngredient.isPresent()) {
@@ -84,6 +92,22 @@ public class SmartIngredientSearchService {
         return results;
     }
 
+    /**
+     * Misma búsqueda ordenada, pero solo lectura: nunca añade ingredientes al catálogo.
+     * Es la que usan los endpoints públicos.
+     */
+    public List<IngredientDto> findIngredients(String query, int limit) {
+        List<IngredientDto> results = searchIndex.search(query.toLowerCase().trim(), limit);
+        logger.debug("🔍 Búsqueda '{}': {} resultados (máx. {})", query, results.size(), limit);
+        return results;
+    }
+
+    public List<IngredientDto> autocomplete(String prefix, int limit) {
+        List<IngredientDto> suggestions = searchIndex.autocomplete(prefix, limit);
+        logger.debug("⌨️ Autocompletado '{}': {} sugerencias", prefix, suggestions.size());
+        return suggestions;
+    }
+
     private boolean canAddIngredientDynamically(String query) {
         // Solo agregar dinámicamente si la consulta es un nombre simple (no muy largo)
         return query.length() <= 20 &&
@@ -125,6 +149,7 @@ public class SmartIngredientSearchService {
                     .build();
 
             Ingredient saved = ingredientRepository.save(newIngredient);
+            searchIndex.upsert(saved);
             logger.debug("💾 Nuevo ingrediente guardado: {} (ES: {})", englishName, spanishName);
 
             return Optional.of(saved);
@@ -139,104 +164,4 @@ public class SmartIngredientSearchService {
         if (text == null || text.isEmpty()) return text;
         return text.substring(0, 1).toUpperCase() + text.substring(1).toLowerCase();
     }
-
-    private boolean matchesIngredient(Ingredient ingredient, String query, String language) {
-        // Búsqueda exacta en inglés
-        boolean matchesEnglish = ingredient.getName().toLowerCase().contains(query);
-
-        // Búsqueda exacta en español
-        boolean matchesSpanish = ingredient.getNameEs() != null &&
-                ingredient.getNameEs().toLowerCase().contains(query);
-
-        // Búsqueda fonética aproximada
-        boolean phoneticMatch = matchesPhonetically(ingredient, query);
-
-        // Búsqueda por similitud (para typos)
-        boolean similarityMatch = matchesBySimilarity(ingredient, query);
-
-        boolean result = matchesEnglish || matchesSpanish || phoneticMatch || similarityMatch;
-
-        if (result) {
-            logger.debug("🎯 Match: {} (EN: '{}', ES: '{}')",
-                    ingredient.getName(), ingredient.getName(), ingredient.getNameEs());
-        }
-
-        return result;
-    }
-
-    private boolean matchesPhonetically(Ingredient ingredient, String query) {
-        String normalizedQuery = normalizeForPhoneticMatch(query);
-
-        String englishName = normalizeForPhoneticMatch(ingredient.getName());
-        boolean englishPhonetic = englishName.contains(normalizedQuery);
-
-        boolean spanishPhonetic = false;
-        if (ingredient.getNameEs() != null) {
-            String spanishName = normalizeForPhoneticMatch(ingredient.getNameEs());
-            spanishPhonetic = spanishName.contains(normalizedQuery);
-        }
-
-        return englishPhonetic || spanishPhonetic;
-    }
-
-    private boolean matchesBySimilarity(Ingredient ingredient, String query) {
-        double similarityThreshold = 0.6; // Reducido para ser más permisivo
-
-        boolean englishSimilar = calculateSimilarity(ingredient.getName().toLowerCase(), query) > similarityThreshold;
-
-        boolean spanishSimilar = false;
-        if (ingredient.getNameEs() != null) {
-            spanishSimilar = calculateSimilarity(ingredient.getNameEs().toLowerCase(), query) > similarityThreshold;
-        }
-
-        return englishSimilar || spanishSimilar;
-    }
-
-    private double calculateSimilarity(String s1, String s2) {
-        if (s1.equals(s2)) return 1.0;
-
-        int minLength = Math.min(s1.length(), s2.length());
-        int maxLength = Math.max(s1.length(), s2.length());
-
-        if (minLength == 0) return 0.0;
-
-        int common = 0;
-        for (int i = 0; i < minLength; i++) {
-            if (s1.charAt(i) == s2.charAt(i)) {
-                common++;
-            }
-        }
-
-        return (double) common / maxLength;
-    }
-
-    private String normalizeForPhoneticMatch(String text) {
-        return text.toLowerCase()
-                .replace("tomato", "tomate")
-                .replace("potato", "papa")
-                .replace("onion", "cebolla")
-                .replace("garlic", "ajo")
-                .replace("chicken", "pollo")
-                .replace("beef", "carne")
-                .replace("pork", "cerdo")
-                .replace("cheese", "queso")
-                .replace("milk", "leche")
-                .replace("egg", "huevo")
-                .replace("fish", "pescado")
-                .replace("rice", "arroz")
-                .replace("pasta", "pasta")
-                .replace("bread", "pan")
-                .replace("flour", "harina")
-                .replace("sugar", "azucar")
-                .replace("salt", "sal")
-                .replace("pepper", "pimienta")
-                .replace("oil", "aceite")
-                .replace("butter", "mantequilla")
-                .replace("lemon", "limon")
-                .replace("lime", "lima")
-                .replace("apple", "manzana")
-                .replace("banana", "platano")
-                .replace("orange", "naranja")
-                .replaceAll("[^a-z]", "");
-    }
-}
\ No newline at end of file
+}
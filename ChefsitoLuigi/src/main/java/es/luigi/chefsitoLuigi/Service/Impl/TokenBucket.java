@@ -0,0 +1,63 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token bucket sin bloqueos: el estado (tokens, instante) es inmutable y se sustituye con CAS.
+ * Las reservas pueden dejar el saldo en negativo, y ese déficit es lo que el llamante
+ * debe esperar antes de usar su token; así varias peticiones pueden hacer cola sin locks.
+ */
+public class TokenBucket {
+
+    private record State(double tokens, long updatedAtNanos) {
+    }
+
+    /** granted=false: no hay token a tiempo y waitNanos es cuánto faltaría (para Retry-After). */
+    public record Reservation(boolean granted, long waitNanos) {
+    }
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / 1_000_000_000d;
+        this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+    }
+
+    public Reservation reserve(long maxWaitNanos) {
+        return reserve(maxWaitNanos, System.nanoTime());
+    }
+
+    /**
+     * Reserva un token si está disponible ya o en menos de maxWaitNanos.
+     */
+    public Reservation reserve(long maxWaitNanos, long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double remaining = refill(current, nowNanos) - 1;
+            long waitNanos = remaining >= 0 ? 0 : (long) Math.ceil(-remaining / tokensPerNano);
+            if (waitNanos > maxWaitNanos) {
+                return new Reservation(false, waitNanos);
+            }
+            if (state.compareAndSet(current, new State(remaining, Math.max(nowNanos, current.updatedAtNanos())))) {
+                return new Reservation(true, waitNanos);
+            }
+        }
+    }
+
+    /** Devuelve un token reservado que al final no se usó. */
+    public void refund() {
+        state.updateAndGet(current -> new State(Math.min(capacity, current.tokens() + 1), current.updatedAtNanos()));
+    }
+
+    public double availableTokens() {
+        return refill(state.get(), System.nanoTime());
+    }
+
+    private double refill(State current, long nowNanos) {
+        long elapsed = Math.max(0, nowNanos - current.updatedAtNanos());
+        return Math.min(capacity, current.tokens() + elapsed * tokensPerNano);
+    }
+}
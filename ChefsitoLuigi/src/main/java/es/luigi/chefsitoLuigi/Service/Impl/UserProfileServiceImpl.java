@@ -2,12 +2,14 @@ package es.luigi.chefsitoLuigi.Service.Impl;
 
 import es.luigi.chefsitoLuigi.Dto.UserProfileDto;
 import es.luigi.chefsitoLuigi.Entity.UserProfile;
+import es.luigi.chefsitoLuigi.Event.UserProfileChangedEvent;
 import es.luigi.chefsitoLuigi.Exception.ResourceNotFoundException;
 import es.luigi.chefsitoLuigi.Mapper.UserProfileMapper;
 import es.luigi.chefsitoLuigi.Repository.UserProfileRepository;
 import es.luigi.chefsitoLuigi.Repository.UserRepository;
 import es.luigi.chefsitoLuigi.Service.UserProfileService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -19,6 +21,7 @@ public class UserProfileServiceImpl implements UserProfileService {
     private final UserProfileRepository userProfileRepository;
     private final UserRepository userRepository;
     private final UserProfileMapper userProfileMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public UserProfileDto createOrUpdate(UserProfileDto dto) {
@@ -41,6 +44,7 @@ public class UserProfileServiceImpl implements UserProfileService {
         }
 
         UserProfile saved = userProfileRepository.save(userProfile);
+        eventPublisher.publishEvent(new UserProfileChangedEvent(dto.getUserId()));
         return userProfileMapper.toDto(saved);
     }
 
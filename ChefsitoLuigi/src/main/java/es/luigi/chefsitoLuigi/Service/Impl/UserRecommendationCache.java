@@ -0,0 +1,116 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
+import es.luigi.chefsitoLuigi.Event.PantryChangedEvent;
+import es.luigi.chefsitoLuigi.Event.UserProfileChangedEvent;
+import es.luigi.chefsitoLuigi.Repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Últimas recomendaciones de cada usuario, con clave userId:versión.
+ * La versión es una columna de users que sube con cada cambio de despensa o perfil, así que
+ * es la misma en todas las instancias: un cambio atendido por otro nodo también deja de servir
+ * la entrada de este. Leerla es una consulta por clave primaria, mucho más barata que cargar
+ * despensa y perfil para calcular la huella.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserRecommendationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserRecommendationCache.class);
+    private static final String CACHE_NAME = "userRecommendations";
+
+    private final MeterRegistry meterRegistry;
+    private final UserRepository userRepository;
+
+    @Value("${recommendations.user-cache.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${recommendations.user-cache.max-users:10000}")
+    private long maxUsers;
+
+    /** Recetas servidas a un usuario y las preferencias con las que se guardan en su historial. */
+    public record UserRecommendations(List<OpenAiRecipeResponse> recipes, UserPreferencesDto preferences) {
+    }
+
+    private Cache<String, UserRecommendations> entries;
+    private Counter invalidationCounter;
+
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, CACHE_NAME);
+        invalidationCounter = meterRegistry.counter("recommendations.user_cache.invalidations");
+        logger.info("💾 Caché de recomendaciones por usuario: máximo {} usuarios, TTL {} h", maxUsers, ttlHours);
+    }
+
+    /**
+     * Versión actual de los datos del usuario. Se lee antes de cargar despensa y perfil:
+     * si cambian durante la generación, el resultado queda guardado bajo una versión ya obsoleta.
+     * Un usuario inexistente no tiene versión válida y nunca acierta.
+     */
+    public long currentVersion(Long userId) {
+        return userRepository.findRecommendationVersion(userId).orElse(-1L);
+    }
+
+    public Optional<UserRecommendations> get(Long userId, long version) {
+        if (version < 0) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entries.getIfPresent(key(userId, version)));
+    }
+
+    public void put(Long userId, long version, List<OpenAiRecipeResponse> recipes, UserPreferencesDto preferences) {
+        if (version < 0 || recipes == null || recipes.isEmpty()) {
+            return;
+        }
+        entries.put(key(userId, version), new UserRecommendations(List.copyOf(recipes), preferences));
+    }
+
+    // Se ejecutan dentro de la transacción que publica el cambio: la versión sube junto con los datos
+    @EventListener
+    public void onPantryChanged(PantryChangedEvent event) {
+        bump(event.userId());
+    }
+
+    @EventListener
+    public void onProfileChanged(UserProfileChangedEvent event) {
+        bump(event.userId());
+    }
+
+    private void bump(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        long previous = currentVersion(userId);
+        userRepository.bumpRecommendationVersion(userId);
+        // En este nodo se libera ya la memoria; en los demás la entrada antigua deja de leerse y caduca
+        entries.invalidate(key(userId, previous));
+        invalidationCounter.increment();
+        logger.debug("♻️ Recomendaciones del usuario {} invalidadas", userId);
+    }
+
+    private static String key(Long userId, long version) {
+        return userId + ":" + version;
+    }
+}
@@ -0,0 +1,189 @@
+package es.luigi.chefsitoLuigi.Service.Impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Cola de escritura diferida para escrituras no críticas.
+ * Un hilo propio agrupa los elementos en lotes (por tamaño o por tiempo desde el primero)
+ * y los entrega al consumidor. Si un lote falla se divide en dos mitades hasta aislar los
+ * elementos que fallan solos, que se reintentan y, si siguen fallando, se descartan sin
+ * arrastrar al resto del lote. Si la cola está llena, escribe el propio llamante para no
+ * perder datos. close() vacía la cola antes de terminar.
+ */
+public class WriteBehindQueue<T> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final Duration shutdownTimeout;
+    private final Consumer<List<T>> writer;
+    private final Thread flusher;
+
+    private final Timer flushTimer;
+    private final Counter writtenCounter;
+    private final Counter retryCounter;
+    private final Counter splitCounter;
+    private final Counter droppedCounter;
+    private final Counter callerRunsCounter;
+
+    private volatile boolean running = true;
+
+    public WriteBehindQueue(String name, int capacity, int batchSize, Duration flushInterval, int maxRetries,
+                            Duration retryBackoff, Duration shutdownTimeout, Consumer<List<T>> writer,
+                            MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.shutdownTimeout = shutdownTimeout;
+        this.writer = writer;
+
+        Tags tags = Tags.of("queue", name);
+        meterRegistry.gauge("write_behind.depth", tags, queue, BlockingQueue::size);
+        flushTimer = meterRegistry.timer("write_behind.flush", tags);
+        writtenCounter = meterRegistry.counter("write_behind.written", tags);
+        retryCounter = meterRegistry.counter("write_behind.retries", tags);
+        splitCounter = meterRegistry.counter("write_behind.splits", tags);
+        droppedCounter = meterRegistry.counter("write_behind.dropped", tags);
+        callerRunsCounter = meterRegistry.counter("write_behind.caller_runs", tags);
+
+        flusher = new Thread(this::run, "write-behind-" + name);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public void submit(T item) {
+        if (running && queue.offer(item)) {
+            // Si se cerró justo ahora y el hilo ya no lo va a recoger, se escribe aquí
+            if (running || !queue.remove(item)) {
+                return;
+            }
+        }
+        // Cola llena o cerrando: se escribe en el hilo del llamante
+        callerRunsCounter.increment();
+        logger.warn("🚦 Cola de escritura '{}' llena, escribiendo de forma síncrona", name);
+        writeWithRetries(List.of(item));
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                T first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<T> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    T next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeWithRetries(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        drain();
+    }
+
+    private void drain() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeWithRetries(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void writeWithRetries(List<T> batch) {
+        if (batch.size() > 1) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                // Un solo elemento erróneo (p. ej. un título demasiado largo) tumba todo el lote:
+                // se escriben las mitades por separado para que solo se pierda ese elemento
+                splitCounter.increment();
+                logger.warn("✂️ Cola de escritura '{}': falló un lote de {} elementos, se divide: {}",
+                        name, batch.size(), e.getMessage());
+                int middle = batch.size() / 2;
+                writeWithRetries(List.copyOf(batch.subList(0, middle)));
+                writeWithRetries(List.copyOf(batch.subList(middle, batch.size())));
+                return;
+            }
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt > maxRetries) {
+                    droppedCounter.increment(batch.size());
+                    logger.error("❌ Cola de escritura '{}': descartado un elemento tras {} intentos: {}",
+                            name, attempt, e.getMessage(), e);
+                    return;
+                }
+                retryCounter.increment();
+                logger.warn("🔁 Cola de escritura '{}': reintento {}/{}: {}",
+                        name, attempt, maxRetries, e.getMessage());
+                try {
+                    Thread.sleep(retryBackoff.toMillis() * attempt);
+                } catch (InterruptedException ie) {
+                    // Apagando: se intenta una última vez sin esperar
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void write(List<T> batch) {
+        flushTimer.record(() -> writer.accept(batch));
+        writtenCounter.increment(batch.size());
+    }
+
+    /** Deja de aceptar elementos y espera a que se escriba lo pendiente. */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            logger.warn("⚠️ Cola de escritura '{}' no terminó a tiempo, quedan {} elementos", name, queue.size());
+            flusher.interrupt();
+        } else {
+            logger.info("✅ Cola de escritura '{}' vaciada al apagar", name);
+        }
+    }
+}
@@ -4,8 +4,11 @@ import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeRequest;
 import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface OpenAiRecipeService {
     List<OpenAiRecipeResponse> getRecipeRecommendations(OpenAiRecipeRequest request);
     List<OpenAiRecipeResponse> getRecipeRecommendationsForUser(Long userId);
+    List<OpenAiRecipeResponse> streamRecipeRecommendationsForUser(Long userId, Consumer<OpenAiRecipeResponse> onRecipe);
+    void prewarmRecommendationsForUser(Long userId);
 }
\ No newline at end of file
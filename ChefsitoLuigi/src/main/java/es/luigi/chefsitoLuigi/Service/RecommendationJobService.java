@@ -0,0 +1,15 @@
+package es.luigi.chefsitoLuigi.Service;
+
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeRequest;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.RecommendationJobDto;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+public interface RecommendationJobService {
+    RecommendationJobDto submit(OpenAiRecipeRequest request);
+    RecommendationJobDto submitForUser(Long userId);
+    Optional<RecommendationJobDto> findJob(String jobId);
+    SseEmitter subscribe(String jobId);
+    SseEmitter streamForUser(Long userId);
+}
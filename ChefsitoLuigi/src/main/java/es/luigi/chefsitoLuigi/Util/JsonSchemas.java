@@ -0,0 +1,131 @@
+package es.luigi.chefsitoLuigi.Util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+
+/**
+ * JSON Schema (subconjunto de "structured outputs" de OpenAI) generado a partir de los DTOs,
+ * y validación de respuestas contra ese mismo esquema.
+ * Modo estricto: todos los campos obligatorios, sin nulos y sin propiedades extra.
+ */
+public final class JsonSchemas {
+
+    private JsonSchemas() {
+    }
+
+    /** Esquema de objeto con los campos declarados en la clase, salvo los indicados. */
+    public static Map<String, Object> forClass(Class<?> type, Set<String> ignoredFields) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                    || ignoredFields.contains(field.getName())) {
+                continue;
+            }
+            properties.put(field.getName(), forType(field.getGenericType(), ignoredFields));
+        }
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        schema.put("required", List.copyOf(properties.keySet()));
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    /** {"property": [items]}: OpenAI exige un objeto como raíz. */
+    public static Map<String, Object> arrayWrapper(String property, Map<String, Object> itemSchema) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", Map.of(property, Map.of("type", "array", "items", itemSchema)));
+        schema.put("required", List.of(property));
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    /** Valor de "response_format" para la API de chat. */
+    public static Map<String, Object> responseFormat(String name, Map<String, Object> schema) {
+        return Map.of("type", "json_schema",
+                "json_schema", Map.of("name", name, "strict", true, "schema", schema));
+    }
+
+    /**
+     * Errores de validación del nodo contra el esquema (vacío si es válido).
+     */
+    public static List<String> validate(JsonNode node, Map<String, Object> schema) {
+        List<String> errors = new ArrayList<>();
+        validate(node, schema, "$", errors);
+        return errors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void validate(JsonNode node, Map<String, Object> schema, String path, List<String> errors) {
+        String type = (String) schema.get("type");
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            errors.add(path + ": falta el valor");
+            return;
+        }
+        switch (type) {
+            case "string" -> check(node.isTextual(), path, type, errors);
+            case "integer" -> check(node.isIntegralNumber(), path, type, errors);
+            case "number" -> check(node.isNumber(), path, type, errors);
+            case "boolean" -> check(node.isBoolean(), path, type, errors);
+            case "array" -> {
+                if (check(node.isArray(), path, type, errors)) {
+                    Map<String, Object> items = (Map<String, Object>) schema.get("items");
+                    for (int i = 0; i < node.size(); i++) {
+                        validate(node.get(i), items, path + "[" + i + "]", errors);
+                    }
+                }
+            }
+            case "object" -> {
+                if (!check(node.isObject(), path, type, errors)) {
+                    return;
+                }
+                Map<String, Map<String, Object>> properties = (Map<String, Map<String, Object>>) schema.get("properties");
+                for (String required : (List<String>) schema.get("required")) {
+                    validate(node.get(required), properties.get(required), path + "." + required, errors);
+                }
+                if (Boolean.FALSE.equals(schema.get("additionalProperties"))) {
+                    node.fieldNames().forEachRemaining(name -> {
+                        if (!properties.containsKey(name)) {
+                            errors.add(path + "." + name + ": propiedad no permitida");
+                        }
+                    });
+                }
+            }
+            default -> errors.add(path + ": tipo de esquema no soportado " + type);
+        }
+    }
+
+    private static boolean check(boolean valid, String path, String expected, List<String> errors) {
+        if (!valid) {
+            errors.add(path + ": se esperaba " + expected);
+        }
+        return valid;
+    }
+
+    private static Map<String, Object> forType(Type type, Set<String> ignoredFields) {
+        if (type instanceof ParameterizedType parameterized
+                && Collection.class.isAssignableFrom((Class<?>) parameterized.getRawType())) {
+            return Map.of("type", "array", "items", forType(parameterized.getActualTypeArguments()[0], ignoredFields));
+        }
+        Class<?> clazz = (Class<?>) type;
+        if (clazz == String.class) {
+            return Map.of("type", "string");
+        }
+        if (clazz == Integer.class || clazz == int.class || clazz == Long.class || clazz == long.class) {
+            return Map.of("type", "integer");
+        }
+        if (clazz == Double.class || clazz == double.class || clazz == Float.class || clazz == float.class) {
+            return Map.of("type", "number");
+        }
+        if (clazz == Boolean.class || clazz == boolean.class) {
+            return Map.of("type", "boolean");
+        }
+        return forClass(clazz, ignoredFields);
+    }
+}
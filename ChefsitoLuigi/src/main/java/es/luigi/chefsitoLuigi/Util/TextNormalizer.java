@@ -0,0 +1,42 @@
+package es.luigi.chefsitoLuigi.Util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización de textos de ingredientes para comparar sin depender de
+ * mayúsculas, tildes ni signos ("Limón" == "limon").
+ */
+public final class TextNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private TextNormalizer() {
+    }
+
+    /** Minúsculas, sin tildes y con cualquier separador reducido a un espacio. */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        String withoutAccents = DIACRITICS.matcher(decomposed).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(withoutAccents).replaceAll(" ").trim();
+    }
+
+    /** Palabras del texto ya plegado. */
+    public static List<String> words(String text) {
+        String folded = fold(text);
+        List<String> words = new ArrayList<>();
+        if (!folded.isEmpty()) {
+            for (String word : folded.split(" ")) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,65 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Service.Impl.BkTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BkTreeTest {
+
+    @Test
+    void distance_ShouldCountTranspositionAsOneEdit() {
+        // When / Then
+        assertEquals(0, BkTree.distance("tomate", "tomate", 2));
+        assertEquals(1, BkTree.distance("tommato", "tomato", 2));
+        assertEquals(1, BkTree.distance("pehcuga", "pechuga", 2));
+        assertEquals(3, BkTree.distance("kitten", "sitting", Integer.MAX_VALUE));
+    }
+
+    @Test
+    void distance_ShouldStopAtBound() {
+        // When / Then: por encima del tope devuelve tope + 1
+        assertEquals(2, BkTree.distance("melon", "lemon", 1));
+        assertEquals(2, BkTree.distance("ajo", "zanahoria", 1));
+    }
+
+    @Test
+    void search_ShouldReturnSameIdsAsBruteForce() {
+        // Given
+        Random random = new Random(42);
+        Map<String, List<Long>> terms = new HashMap<>();
+        for (long id = 0; id < 500; id++) {
+            terms.computeIfAbsent(randomWord(random), key -> new ArrayList<>()).add(id);
+        }
+        BkTree tree = BkTree.build(terms);
+
+        for (int i = 0; i < 50; i++) {
+            String query = randomWord(random);
+            for (int maxDistance = 1; maxDistance <= 2; maxDistance++) {
+                // When
+                Set<Long> found = new HashSet<>();
+                tree.search(query, maxDistance, found::add);
+
+                // Then
+                Set<Long> expected = new HashSet<>();
+                for (Map.Entry<String, List<Long>> entry : terms.entrySet()) {
+                    if (BkTree.distance(query, entry.getKey(), Integer.MAX_VALUE) <= maxDistance) {
+                        expected.addAll(entry.getValue());
+                    }
+                }
+                assertEquals(expected, found, "consulta " + query + " k=" + maxDistance);
+            }
+        }
+    }
+
+    private static String randomWord(Random random) {
+        int length = 3 + random.nextInt(5);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append("aeilmnorst".charAt(random.nextInt(10)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package es.luigi.chefsitoLuigi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Exception.LlmUnavailableException;
+import es.luigi.chefsitoLuigi.Service.Impl.ChatCompletionBackend;
+import es.luigi.chefsitoLuigi.Service.Impl.ChatRecordingStore;
+import es.luigi.chefsitoLuigi.Service.Impl.RecordingChatBackend;
+import es.luigi.chefsitoLuigi.Service.Impl.ReplayChatBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatRecordReplayTest {
+
+    @TempDir
+    Path recordingsDir;
+
+    private final ChatCompletionBackend fakeOpenAi = new ChatCompletionBackend() {
+        @Override
+        public String complete(Map<String, Object> requestBody) {
+            return "[{\"title\":\"Tortilla\"}]";
+        }
+
+        @Override
+        public void stream(Map<String, Object> requestBody, Consumer<String> onContent) {
+            onContent.accept("[{\"title\":");
+            onContent.accept("\"Tortilla\"}]");
+        }
+    };
+
+    @Test
+    void replay_ShouldServeWhatRecordSaved() {
+        // Given
+        ChatRecordingStore store = new ChatRecordingStore(recordingsDir, new ObjectMapper());
+        RecordingChatBackend recorder = new RecordingChatBackend(fakeOpenAi, store, new SimpleMeterRegistry());
+        Map<String, Object> body = Map.of("model", "gpt", "messages", List.of(Map.of("role", "user", "content", "huevos")));
+        Map<String, Object> streamBody = Map.of("model", "gpt", "stream", true, "messages", List.of(Map.of("role", "user", "content", "huevos")));
+        recorder.complete(body);
+        recorder.stream(streamBody, chunk -> { });
+
+        // When
+        ReplayChatBackend replay = new ReplayChatBackend(store, false, Duration.ZERO, Duration.ZERO, Duration.ZERO, new SimpleMeterRegistry());
+        List<String> chunks = new ArrayList<>();
+        replay.stream(streamBody, chunks::add);
+
+        // Then
+        assertEquals("[{\"title\":\"Tortilla\"}]", replay.complete(body));
+        assertEquals(List.of("[{\"title\":", "\"Tortilla\"}]"), chunks);
+    }
+
+    @Test
+    void replay_ShouldFailOnMissUnlessMatchAnyIsEnabled() {
+        // Given
+        ChatRecordingStore store = new ChatRecordingStore(recordingsDir, new ObjectMapper());
+        new RecordingChatBackend(fakeOpenAi, store, new SimpleMeterRegistry()).complete(Map.of("content", "huevos"));
+        Map<String, Object> unseen = Map.of("content", "lentejas");
+
+        // When
+        ReplayChatBackend strict = new ReplayChatBackend(store, false, Duration.ZERO, Duration.ZERO, Duration.ZERO, new SimpleMeterRegistry());
+        ReplayChatBackend lenient = new ReplayChatBackend(store, true, Duration.ZERO, Duration.ZERO, Duration.ZERO, new SimpleMeterRegistry());
+
+        // Then
+        assertThrows(LlmUnavailableException.class, () -> strict.complete(unseen));
+        assertEquals("[{\"title\":\"Tortilla\"}]", lenient.complete(unseen));
+    }
+}
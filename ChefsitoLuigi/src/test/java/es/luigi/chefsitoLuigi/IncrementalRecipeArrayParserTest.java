@@ -0,0 +1,54 @@
+package es.luigi.chefsitoLuigi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Service.Impl.IncrementalRecipeArrayParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalRecipeArrayParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void feed_ShouldEmitEachRecipeAsSoonAsItsObjectCloses() {
+        // Given
+        IncrementalRecipeArrayParser parser = new IncrementalRecipeArrayParser(objectMapper);
+
+        // When
+        List<OpenAiRecipeResponse> first = parser.feed("```json\n[{\"title\": \"Tortilla\", \"ingredients\": [\"2 hue");
+        List<OpenAiRecipeResponse> second = parser.feed("vos\"]}, {\"title\": \"Gazpa");
+        List<OpenAiRecipeResponse> third = parser.feed("cho\"}]\n```");
+
+        // Then
+        assertTrue(first.isEmpty());
+        assertEquals(1, second.size());
+        assertEquals("Tortilla", second.get(0).getTitle());
+        assertEquals(List.of("2 huevos"), second.get(0).getIngredients());
+        assertEquals(1, third.size());
+        assertEquals("Gazpacho", third.get(0).getTitle());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void feed_ShouldIgnoreBracesAndQuotesInsideStrings() {
+        // Given
+        IncrementalRecipeArrayParser parser = new IncrementalRecipeArrayParser(objectMapper);
+        String json = "[{\"title\": \"Salsa {especial} \\\"casera\\\" [v2]\", \"preparationTime\": 10}]";
+
+        // When
+        List<OpenAiRecipeResponse> recipes = new ArrayList<>();
+        for (char c : json.toCharArray()) {
+            recipes.addAll(parser.feed(String.valueOf(c)));
+        }
+
+        // Then
+        assertEquals(1, recipes.size());
+        assertEquals("Salsa {especial} \"casera\" [v2]", recipes.get(0).getTitle());
+        assertEquals(10, recipes.get(0).getPreparationTime());
+    }
+}
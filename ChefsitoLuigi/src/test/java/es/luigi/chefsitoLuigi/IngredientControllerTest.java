@@ -90,19 +90,57 @@ class IngredientControllerTest {
         cabbage.setId(40L);
         cabbage.setName("Cabbage");
 
-        when(searchService.searchIngredients("pollo", "es"))
+        when(searchService.searchIngredients("pollo", "es", 20))
                 .thenReturn(List.of(cabbage));
 
         // When
         ResponseEntity<List<IngredientDto>> response =
-                ingredientController.smartSearchIngredients("pollo", "es");
+                ingredientController.smartSearchIngredients("pollo", 20, "es");
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
         assertEquals("Cabbage", response.getBody().get(0).getName());
-        verify(searchService, times(1)).searchIngredients("pollo", "es");
+        verify(searchService, times(1)).searchIngredients("pollo", "es", 20);
+    }
+
+    @Test
+    void searchIngredients_ShouldUseReadOnlySearchWithLimit() {
+        // Given
+        IngredientDto tomato = new IngredientDto();
+        tomato.setId(1L);
+        tomato.setName("Tomato");
+
+        when(searchService.findIngredients("to", 5)).thenReturn(List.of(tomato));
+
+        // When
+        ResponseEntity<List<IngredientDto>> response = ingredientController.searchIngredients("to", 5);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(tomato), response.getBody());
+        verify(searchService, times(1)).findIngredients("to", 5);
+        verify(searchService, never()).searchIngredients(anyString(), anyString(), anyInt());
+        verifyNoInteractions(ingredientService);
+    }
+
+    @Test
+    void autocomplete_ShouldDelegateToServiceWithLimit() {
+        // Given
+        IngredientDto tomato = new IngredientDto();
+        tomato.setId(1L);
+        tomato.setName("Tomato");
+
+        when(searchService.autocomplete("tom", 5)).thenReturn(List.of(tomato));
+
+        // When
+        ResponseEntity<List<IngredientDto>> response = ingredientController.autocomplete("tom", 5);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(tomato), response.getBody());
+        verify(searchService, times(1)).autocomplete("tom", 5);
     }
 
     @Test
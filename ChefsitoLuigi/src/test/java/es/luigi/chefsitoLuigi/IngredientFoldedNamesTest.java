@@ -0,0 +1,105 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Entity.Ingredient;
+import es.luigi.chefsitoLuigi.Repository.IngredientRepository;
+import es.luigi.chefsitoLuigi.Service.Impl.IngredientPopulationService;
+import es.luigi.chefsitoLuigi.Service.Impl.IngredientSearchIndex;
+import es.luigi.chefsitoLuigi.Service.Impl.IngredientTranslationService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class IngredientFoldedNamesTest {
+
+    @Test
+    void foldNames_ShouldFoldBothLanguages() {
+        // Given
+        Ingredient ingredient = Ingredient.builder().name("Jalapeño Peppers").nameEs("Chile jalapeño").build();
+
+        // When
+        ingredient.foldNames();
+
+        // Then
+        assertEquals("jalapeno peppers", ingredient.getNameFolded());
+        assertEquals("chile jalapeno", ingredient.getNameEsFolded());
+    }
+
+    @Test
+    void findByNameIgnoreCase_ShouldLookUpFoldedName() {
+        // Given
+        IngredientRepository repository = mock(IngredientRepository.class, CALLS_REAL_METHODS);
+        Ingredient lemon = Ingredient.builder().id(2L).name("Limón").build();
+        doReturn(Optional.of(lemon)).when(repository).findByNameFolded("limon");
+
+        // When
+        Optional<Ingredient> result = repository.findByNameIgnoreCase("  LIMÓN ");
+
+        // Then
+        assertEquals(Optional.of(lemon), result);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfill_ShouldFoldPendingRowsAndMergeCollisionsIntoOldest() {
+        // Given: "Tomato" ya está plegado; "TOMATO" y "Limón" son filas antiguas sin plegar
+        IngredientRepository repository = mock(IngredientRepository.class);
+        IngredientSearchIndex searchIndex = mock(IngredientSearchIndex.class);
+        IngredientPopulationService service = new IngredientPopulationService(
+                repository, mock(IngredientTranslationService.class), searchIndex);
+        Ingredient tomato = Ingredient.builder().id(1L).name("Tomato").build();
+        tomato.foldNames();
+        Ingredient oldTomato = Ingredient.builder().id(2L).name("TOMATO").build();
+        Ingredient lemon = Ingredient.builder().id(3L).name("Limón").nameEs("Limón").build();
+        when(repository.findByNameFoldedIsNull()).thenReturn(List.of(oldTomato, lemon));
+        when(repository.findByNameFoldedIn(anyCollection())).thenReturn(List.of(tomato));
+        when(repository.hasLegacyRecipeIngredients()).thenReturn(true);
+
+        // When
+        ReflectionTestUtils.invokeMethod(service, "backfillFoldedNames");
+
+        // Then: el repetido apunta al más antiguo y se borra antes de guardar
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).repointPantryItems(List.of(2L), 1L);
+        inOrder.verify(repository).repointRecipeIngredientsRel(List.of(2L), 1L);
+        inOrder.verify(repository).repointLegacyRecipeIngredients(List.of(2L), 1L);
+        inOrder.verify(repository).deleteAllByIdInBatch(List.of(2L));
+        ArgumentCaptor<List<Ingredient>> saved = ArgumentCaptor.forClass(List.class);
+        inOrder.verify(repository).saveAll(saved.capture());
+        assertEquals(List.of(lemon), saved.getValue());
+        assertEquals("limon", lemon.getNameFolded());
+        verify(searchIndex).remove(2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfill_ShouldKeepOlderPendingRowOverNewerFoldedOne() {
+        // Given: la fila sin plegar es la más antigua
+        IngredientRepository repository = mock(IngredientRepository.class);
+        IngredientPopulationService service = new IngredientPopulationService(
+                repository, mock(IngredientTranslationService.class), mock(IngredientSearchIndex.class));
+        Ingredient oldLemon = Ingredient.builder().id(1L).name("LIMON").build();
+        Ingredient newLemon = Ingredient.builder().id(5L).name("Limón").build();
+        newLemon.foldNames();
+        when(repository.findByNameFoldedIsNull()).thenReturn(List.of(oldLemon));
+        when(repository.findByNameFoldedIn(anyCollection())).thenReturn(List.of(newLemon));
+
+        // When
+        ReflectionTestUtils.invokeMethod(service, "backfillFoldedNames");
+
+        // Then
+        verify(repository).repointPantryItems(List.of(5L), 1L);
+        verify(repository, never()).repointLegacyRecipeIngredients(anyCollection(), anyLong());
+        verify(repository).deleteAllByIdInBatch(List.of(5L));
+        ArgumentCaptor<List<Ingredient>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        assertEquals(List.of(oldLemon), saved.getValue());
+    }
+}
@@ -0,0 +1,204 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Dto.IngredientDto;
+import es.luigi.chefsitoLuigi.Entity.Ingredient;
+import es.luigi.chefsitoLuigi.Repository.IngredientRepository;
+import es.luigi.chefsitoLuigi.Repository.PantryItemRepository;
+import es.luigi.chefsitoLuigi.Service.Impl.IngredientSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngredientSearchIndexTest {
+
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    @Mock
+    private PantryItemRepository pantryItemRepository;
+
+    private IngredientSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new IngredientSearchIndex(ingredientRepository, pantryItemRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "editLengthThresholds", List.of(4, 8));
+        ReflectionTestUtils.setField(index, "autocompleteTopK", 10);
+        ReflectionTestUtils.invokeMethod(index, "init");
+        when(ingredientRepository.findAll()).thenReturn(List.of(
+                ingredient(1L, "Chicken Breast", "Pechuga de pollo"),
+                ingredient(2L, "Lemon", "Limón"),
+                ingredient(3L, "Tomato", "Tomate")));
+        // Los tomates cherry (id 6) están en dos despensas; el resto en ninguna
+        when(pantryItemRepository.countUsesByIngredient()).thenReturn(List.<Object[]>of(new Object[]{6L, 2L}));
+        index.rebuild();
+    }
+
+    @Test
+    void search_ShouldMatchSpanishNameIgnoringAccents() {
+        // When
+        List<IngredientDto> results = index.search("limon", 10);
+
+        // Then
+        assertEquals(List.of(2L), ids(results));
+        assertEquals("Limón", results.get(0).getNameEs());
+    }
+
+    @Test
+    void search_ShouldMatchEnglishNameThroughPhoneticSynonym() {
+        // When: "pollo" no aparece en el nombre inglés pero sí en su clave fonética
+        List<IngredientDto> results = index.search("pollo", 10);
+
+        // Then
+        assertEquals(List.of(1L), ids(results));
+    }
+
+    @Test
+    void search_ShouldTolerateTypos() {
+        // When
+        List<IngredientDto> results = index.search("tomatp", 10);
+
+        // Then
+        assertEquals(List.of(3L), ids(results));
+    }
+
+    @Test
+    void search_ShouldTolerateInsertedLetterAndTransposition() {
+        // When / Then: una letra de más o dos letras cruzadas son una sola edición
+        assertEquals(List.of(3L), ids(index.search("tommato", 10)));
+        assertEquals(List.of(1L), ids(index.search("pehcuga", 10)));
+    }
+
+    @Test
+    void search_ShouldNotMatchUnrelatedWordsOfSameLength() {
+        // When: "melon" comparte longitud y posiciones con "lemon" pero está a más de una edición
+        List<IngredientDto> results = index.search("melon", 10);
+
+        // Then
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    void search_ShouldRequireExactMatchForShortQueries() {
+        // When: con menos de 4 letras no se toleran ediciones
+        List<IngredientDto> results = index.search("lam", 10);
+
+        // Then
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    void search_ShouldRankExactThenPrefixThenUsage() {
+        // Given
+        addTomatoVariants();
+
+        // When / Then: "Tomato" es exacto; "Cherry Tomatoes" (más usado) y "Tomato Puree" son prefijo de palabra
+        assertEquals(List.of(3L, 6L, 5L), ids(index.search("tomato", 10)));
+        assertEquals(List.of(3L, 6L), ids(index.search("tomato", 2)));
+        assertEquals(List.of(6L, 3L, 5L), ids(index.search("tomat", 10)));
+    }
+
+    @Test
+    void search_ShouldPutTyposAfterEverythingElse() {
+        // Given
+        addTomatoVariants();
+
+        // When: "tomato" a una edición; sin coincidencias de texto
+        List<IngredientDto> results = index.search("tomatp", 10);
+
+        // Then
+        assertEquals(List.of(3L, 5L), ids(results));
+        assertTrue(index.search("tomatp", 0).isEmpty());
+    }
+
+    @Test
+    void search_ShouldRankSubstringBelowPrefixEvenWithBetterRank() {
+        // Given: "Hotpot" tiene mejor rango (nombre más corto) pero solo contiene "pot"
+        index.upsertAll(List.of(
+                ingredient(7L, "Potato Starch", "Almidón de patata"),
+                ingredient(8L, "Hotpot", "Olla")));
+
+        // When
+        List<IngredientDto> results = index.search("pot", 10);
+
+        // Then
+        assertEquals(List.of(7L, 8L), ids(results));
+        assertEquals(List.of(7L), ids(index.search("pot", 1)));
+    }
+
+    @Test
+    void autocomplete_ShouldRankByPantryUsageThenShorterName() {
+        // Given
+        addTomatoVariants();
+
+        // When
+        List<IngredientDto> results = index.autocomplete("tom", 10);
+
+        // Then
+        assertEquals(List.of(6L, 3L, 5L), ids(results));
+    }
+
+    @Test
+    void autocomplete_ShouldMatchWordsInsideNamesAndRespectLimit() {
+        // Given
+        addTomatoVariants();
+
+        // When / Then: "pollo" es la tercera palabra de "Pechuga de pollo"; "cher" empieza "cherry"
+        assertEquals(List.of(1L), ids(index.autocomplete("Pollo", 10)));
+        assertEquals(List.of(6L), ids(index.autocomplete("cher", 1)));
+        assertTrue(index.autocomplete("de", 10).isEmpty());
+        assertTrue(index.autocomplete("   ", 10).isEmpty());
+    }
+
+    @Test
+    void upsertAndRemove_ShouldUpdateIndexWithoutReloading() {
+        // Given
+        index.upsert(ingredient(4L, "Garlic", "Ajo"));
+        index.upsert(ingredient(2L, "Lime", "Lima"));
+
+        // When
+        index.remove(3L);
+
+        // Then
+        assertEquals(List.of(4L), ids(index.search("ajo", 10)));
+        assertEquals(List.of(2L), ids(index.search("lima", 10)));
+        assertTrue(index.search("tomate", 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void search_ShouldReturnCopiesThatDoNotAlterTheIndex() {
+        // Given
+        index.search("lemon", 10).get(0).setName("Changed");
+
+        // When
+        List<IngredientDto> results = index.search("lemon", 10);
+
+        // Then
+        assertEquals("Lemon", results.get(0).getName());
+    }
+
+    private void addTomatoVariants() {
+        index.upsertAll(List.of(
+                ingredient(5L, "Tomato Puree", "Tomate triturado"),
+                ingredient(6L, "Cherry Tomatoes", "Tomates cherry")));
+    }
+
+    private static Ingredient ingredient(Long id, String name, String nameEs) {
+        return Ingredient.builder().id(id).name(name).nameEs(nameEs).unit("units").quantity(1.0).build();
+    }
+
+    private static List<Long> ids(List<IngredientDto> results) {
+        return results.stream().map(IngredientDto::getId).toList();
+    }
+}
@@ -2,9 +2,11 @@ package es.luigi.chefsitoLuigi;
 
 import es.luigi.chefsitoLuigi.Dto.IngredientDto;
 import es.luigi.chefsitoLuigi.Entity.Ingredient;
+import es.luigi.chefsitoLuigi.Exception.ResourceAlreadyExistsException;
 import es.luigi.chefsitoLuigi.Exception.ResourceNotFoundException;
 import es.luigi.chefsitoLuigi.Mapper.IngredientMapper;
 import es.luigi.chefsitoLuigi.Repository.IngredientRepository;
+import es.luigi.chefsitoLuigi.Service.Impl.IngredientSearchIndex;
 import es.luigi.chefsitoLuigi.Service.Impl.IngredientServiceImpl;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,6 +26,9 @@ class IngredientServiceImplTest {
     @Mock
     private IngredientMapper ingredientMapper;
 
+    @Mock
+    private IngredientSearchIndex searchIndex;
+
     @InjectMocks
     private IngredientServiceImpl ingredientService;
 
@@ -45,6 +50,42 @@ class IngredientServiceImplTest {
         assertNotNull(result);
         assertEquals(dto.getName(), result.getName());
         verify(ingredientRepository, times(1)).save(entity);
+        verify(searchIndex, times(1)).upsert(entity);
+    }
+
+    @Test
+    void create_WhenAccentOrCaseVariantExists_ShouldThrowConflict() {
+        // Given
+        IngredientDto dto = new IngredientDto();
+        dto.setName("LIMON");
+        Ingredient existing = new Ingredient();
+        existing.setId(1L);
+        existing.setName("Limón");
+        when(ingredientRepository.findByNameIgnoreCase("LIMON")).thenReturn(Optional.of(existing));
+
+        // When & Then
+        assertThrows(ResourceAlreadyExistsException.class, () -> ingredientService.create(dto));
+        verify(ingredientRepository, never()).save(any());
+    }
+
+    @Test
+    void update_WhenRenamingToAnotherIngredientsVariant_ShouldThrowConflict() {
+        // Given
+        Ingredient tomato = new Ingredient();
+        tomato.setId(2L);
+        tomato.setName("Tomate");
+        Ingredient lemon = new Ingredient();
+        lemon.setId(1L);
+        lemon.setName("Limón");
+        IngredientDto dto = new IngredientDto();
+        dto.setName("limon");
+        when(ingredientRepository.findById(2L)).thenReturn(Optional.of(tomato));
+        when(ingredientRepository.findByNameIgnoreCase("limon")).thenReturn(Optional.of(lemon));
+
+        // When & Then
+        assertThrows(ResourceAlreadyExistsException.class, () -> ingredientService.update(2L, dto));
+        verify(ingredientRepository, never()).save(any());
+        assertEquals("Tomate", tomato.getName());
     }
 
     @Test
@@ -0,0 +1,126 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Service.Impl.LlmCircuitBreaker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmCircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+    private static final Duration HALF_OPEN_TIMEOUT = Duration.ofSeconds(90);
+
+    // Reloj manual en nanos
+    private final long[] now = {0};
+
+    private LlmCircuitBreaker breaker(int windowSize, int minimumCalls, Duration openDuration, int probes) {
+        return new LlmCircuitBreaker("test", windowSize, minimumCalls, 50, openDuration, probes,
+                HALF_OPEN_TIMEOUT, () -> now[0]);
+    }
+
+    private void advance(Duration duration) {
+        now[0] += duration.toNanos();
+    }
+
+    @Test
+    void onFailure_ShouldOpenCircuitWhenFailureRateReachesThreshold() {
+        // Given
+        LlmCircuitBreaker breaker = breaker(4, 4, Duration.ofMinutes(1), 1);
+
+        // When
+        breaker.tryAcquirePermission().onSuccess();
+        breaker.tryAcquirePermission().onSuccess();
+        breaker.tryAcquirePermission().onFailure();
+        LlmCircuitBreaker.State beforeThreshold = breaker.getState();
+        breaker.tryAcquirePermission().onFailure();
+
+        // Then
+        assertEquals(LlmCircuitBreaker.State.CLOSED, beforeThreshold);
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void tryAcquirePermission_ShouldCloseAfterSuccessfulProbe() {
+        // Given
+        LlmCircuitBreaker breaker = breaker(2, 1, Duration.ZERO, 1);
+        breaker.tryAcquirePermission().onFailure();
+
+        // When
+        LlmCircuitBreaker.Permit probe = breaker.tryAcquirePermission();
+        LlmCircuitBreaker.Permit secondProbe = breaker.tryAcquirePermission();
+        probe.onSuccess();
+
+        // Then
+        assertNotNull(probe);
+        assertNull(secondProbe);
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void permit_ShouldIgnoreResultFromOlderGeneration() {
+        // Given: una llamada lenta empieza en CLOSED y el circuito se abre mientras tanto
+        LlmCircuitBreaker breaker = breaker(2, 1, OPEN_DURATION, 1);
+        LlmCircuitBreaker.Permit slowCall = breaker.tryAcquirePermission();
+        breaker.tryAcquirePermission().onFailure();
+        advance(OPEN_DURATION);
+        LlmCircuitBreaker.Permit probe = breaker.tryAcquirePermission();
+
+        // When: la llamada lenta falla durante HALF_OPEN y después la prueba va bien
+        slowCall.onFailure();
+        LlmCircuitBreaker.State afterStaleFailure = breaker.getState();
+        probe.onSuccess();
+
+        // Then
+        assertNotNull(probe);
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, afterStaleFailure);
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void permit_ShouldCountOnlyFirstResult() {
+        // Given
+        LlmCircuitBreaker breaker = breaker(2, 1, OPEN_DURATION, 1);
+        breaker.tryAcquirePermission().onFailure();
+        advance(OPEN_DURATION);
+        LlmCircuitBreaker.Permit probe = breaker.tryAcquirePermission();
+
+        // When: el finally llama a onIgnored después del onSuccess
+        probe.onSuccess();
+        probe.onIgnored();
+
+        // Then
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void tryAcquirePermission_ShouldReopenWhenProbesHangPastHalfOpenTimeout() {
+        // Given: una prueba que nunca informa resultado
+        LlmCircuitBreaker breaker = breaker(2, 1, OPEN_DURATION, 1);
+        breaker.tryAcquirePermission().onFailure();
+        advance(OPEN_DURATION);
+        LlmCircuitBreaker.Permit hungProbe = breaker.tryAcquirePermission();
+        LlmCircuitBreaker.Permit blocked = breaker.tryAcquirePermission();
+
+        // When
+        advance(HALF_OPEN_TIMEOUT);
+        LlmCircuitBreaker.Permit afterTimeout = breaker.tryAcquirePermission();
+        LlmCircuitBreaker.State stateAfterTimeout = breaker.getState();
+        advance(OPEN_DURATION);
+        LlmCircuitBreaker.Permit newProbe = breaker.tryAcquirePermission();
+        hungProbe.onSuccess();
+        LlmCircuitBreaker.State afterStaleProbe = breaker.getState();
+        newProbe.onSuccess();
+
+        // Then
+        assertNotNull(hungProbe);
+        assertNull(blocked);
+        assertNull(afterTimeout);
+        assertEquals(LlmCircuitBreaker.State.OPEN, stateAfterTimeout);
+        assertNotNull(newProbe);
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, afterStaleProbe);
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,113 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
+import es.luigi.chefsitoLuigi.Entity.Recipe;
+import es.luigi.chefsitoLuigi.Repository.RecipeRepository;
+import es.luigi.chefsitoLuigi.Service.Impl.EnhancedIngredientInfo;
+import es.luigi.chefsitoLuigi.Service.Impl.LocalRecipeMatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LocalRecipeMatcherTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    private LocalRecipeMatcher matcher;
+
+    private final Recipe tortilla = Recipe.builder().id(1L).title("Tortilla de patatas")
+            .ingredientNames(List.of("4 huevos", "3 patatas medianas", "1 cebolla picada", "Sal al gusto"))
+            .dietTags(Set.of("VEGETARIAN"))
+            .build();
+
+    private final Recipe paella = Recipe.builder().id(2L).title("Paella")
+            .ingredientNames(List.of("300g de arroz", "8 gambas", "1 pimiento rojo", "Azafrán"))
+            .dietTags(Set.of())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        matcher = new LocalRecipeMatcher(recipeRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(matcher, "enabled", true);
+        ReflectionTestUtils.setField(matcher, "minCoverage", 0.7);
+        ReflectionTestUtils.setField(matcher, "minResults", 1);
+        ReflectionTestUtils.setField(matcher, "pantryStaples", List.of("sal", "aceite"));
+        ReflectionTestUtils.invokeMethod(matcher, "init");
+        when(recipeRepository.findAllForMatchingBy()).thenReturn(List.of(tortilla, paella));
+        matcher.rebuildIndex();
+    }
+
+    private EnhancedIngredientInfo pantryItem(String english, String spanish) {
+        return EnhancedIngredientInfo.builder().englishName(english).spanishName(spanish).build();
+    }
+
+    @Test
+    void findBestMatches_ShouldReturnRecipesCoveredByPantry() {
+        // Given
+        List<EnhancedIngredientInfo> pantry = List.of(
+                pantryItem("Egg", "Huevo"), pantryItem("Potato", "Patata"), pantryItem("Onion", "Cebolla"));
+
+        // When
+        List<Recipe> result = matcher.findBestMatches(pantry, UserPreferencesDto.builder().build(), 5);
+
+        // Then
+        assertEquals(List.of(tortilla), result);
+    }
+
+    @Test
+    void findBestMatches_ShouldFilterByDietAndExclusions() {
+        // Given
+        List<EnhancedIngredientInfo> pantry = List.of(
+                pantryItem("Egg", "Huevo"), pantryItem("Potato", "Patata"), pantryItem("Onion", "Cebolla"));
+
+        // When
+        List<Recipe> vegan = matcher.findBestMatches(pantry, UserPreferencesDto.builder().dietType("VEGAN").build(), 5);
+        List<Recipe> eggAllergy = matcher.findBestMatches(pantry, UserPreferencesDto.builder().allergies(List.of("Huevo")).build(), 5);
+
+        // Then
+        assertTrue(vegan.isEmpty());
+        assertTrue(eggAllergy.isEmpty());
+    }
+
+    @Test
+    void findBestMatches_ShouldOnlyServeRecipesGeneratedUnderTheUsersConstraints() {
+        // Given: "gluten" no aparece en "harina de trigo", así que solo vale la restricción guardada
+        Recipe crepes = Recipe.builder().id(3L).title("Crepes")
+                .ingredientNames(List.of("200g de harina de trigo", "2 huevos", "500 ml de leche"))
+                .dietTags(Set.of())
+                .build();
+        Recipe glutenFreeCrepes = Recipe.builder().id(4L).title("Crepes sin gluten")
+                .ingredientNames(List.of("200g de harina de trigo sarraceno", "2 huevos", "500 ml de leche"))
+                .dietTags(Set.of())
+                .exclusions(Set.of("gluten", "marisco"))
+                .build();
+        when(recipeRepository.findAllForMatchingBy()).thenReturn(List.of(crepes, glutenFreeCrepes));
+        matcher.rebuildIndex();
+        List<EnhancedIngredientInfo> pantry = List.of(
+                pantryItem("Wheat flour", "Harina de trigo"), pantryItem("Egg", "Huevo"), pantryItem("Milk", "Leche"));
+
+        // When
+        List<Recipe> noConstraints = matcher.findBestMatches(pantry, UserPreferencesDto.builder().build(), 5);
+        List<Recipe> glutenAllergy = matcher.findBestMatches(pantry,
+                UserPreferencesDto.builder().allergies(List.of("Gluten")).build(), 5);
+        List<Recipe> lactoseIntolerance = matcher.findBestMatches(pantry,
+                UserPreferencesDto.builder().allergies(List.of("Gluten")).intolerances(List.of("Lactosa")).build(), 5);
+
+        // Then
+        assertEquals(2, noConstraints.size());
+        assertEquals(List.of(glutenFreeCrepes), glutenAllergy);
+        assertTrue(lactoseIntolerance.isEmpty());
+    }
+}
@@ -0,0 +1,96 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Controller.OpenAiRecipeController;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.RecommendationJobDto;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.RecommendationJobStatus;
+import es.luigi.chefsitoLuigi.Exception.ResourceNotFoundException;
+import es.luigi.chefsitoLuigi.Security.CustomUserDetailsService;
+import es.luigi.chefsitoLuigi.Service.OpenAiRecipeService;
+import es.luigi.chefsitoLuigi.Service.RecommendationJobService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OpenAiRecipeControllerTest {
+
+    @Mock
+    private OpenAiRecipeService openAiRecipeService;
+
+    @Mock
+    private RecommendationJobService recommendationJobService;
+
+    @InjectMocks
+    private OpenAiRecipeController openAiRecipeController;
+
+    private Authentication mockAuth(Long userId, String... roles) {
+        CustomUserDetailsService.CustomUserDetails userDetails =
+                mock(CustomUserDetailsService.CustomUserDetails.class);
+        lenient().when(userDetails.getId()).thenReturn(userId);
+
+        Authentication authentication = mock(Authentication.class);
+        lenient().when(authentication.getPrincipal()).thenReturn(userDetails);
+        List<SimpleGrantedAuthority> authorities = Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList();
+        doReturn(authorities).when(authentication).getAuthorities();
+
+        return authentication;
+    }
+
+    private RecommendationJobDto jobOf(Long userId) {
+        return RecommendationJobDto.builder()
+                .jobId("job-1")
+                .userId(userId)
+                .status(RecommendationJobStatus.PENDING)
+                .build();
+    }
+
+    @Test
+    void getJob_OfAnotherUser_ShouldBeNotFound() {
+        // Given
+        Authentication authentication = mockAuth(1L);
+        when(recommendationJobService.findJob("job-1")).thenReturn(Optional.of(jobOf(2L)));
+
+        // When / Then: no se revela que el trabajo existe
+        assertThrows(ResourceNotFoundException.class, () -> openAiRecipeController.getJob("job-1", authentication));
+    }
+
+    @Test
+    void subscribeToJob_OfAnotherUser_ShouldBeNotFoundWithoutSubscribing() {
+        // Given
+        Authentication authentication = mockAuth(1L);
+        when(recommendationJobService.findJob("job-1")).thenReturn(Optional.of(jobOf(2L)));
+
+        // When / Then
+        assertThrows(ResourceNotFoundException.class, () -> openAiRecipeController.subscribeToJob("job-1", authentication));
+        verify(recommendationJobService, never()).subscribe(anyString());
+    }
+
+    @Test
+    void getJob_OfOwnUserOrAsAdmin_ShouldBeReturned() {
+        // Given
+        when(recommendationJobService.findJob("job-1")).thenReturn(Optional.of(jobOf(2L)));
+
+        // When
+        ResponseEntity<RecommendationJobDto> owner = openAiRecipeController.getJob("job-1", mockAuth(2L));
+        ResponseEntity<RecommendationJobDto> admin = openAiRecipeController.getJob("job-1", mockAuth(1L, "ROLE_ADMIN"));
+
+        // Then
+        assertEquals(HttpStatus.OK, owner.getStatusCode());
+        assertEquals("job-1", owner.getBody().getJobId());
+        assertEquals(HttpStatus.OK, admin.getStatusCode());
+    }
+}
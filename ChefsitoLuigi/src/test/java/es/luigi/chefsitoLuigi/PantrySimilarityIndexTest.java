@@ -0,0 +1,66 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Service.Impl.PantrySimilarityIndex;
+import es.luigi.chefsitoLuigi.Service.Impl.PantrySimilarityIndex.PantryProfile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PantrySimilarityIndexTest {
+
+    private PantrySimilarityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PantrySimilarityIndex(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "threshold", 0.8);
+        ReflectionTestUtils.setField(index, "bands", 16);
+        ReflectionTestUtils.setField(index, "rowsPerBand", 4);
+        ReflectionTestUtils.setField(index, "maxEntries", 100L);
+        ReflectionTestUtils.setField(index, "ttlMinutes", 30L);
+        ReflectionTestUtils.invokeMethod(index, "init");
+    }
+
+    private Set<Long> ids(long fromInclusive, long toInclusive) {
+        return LongStream.rangeClosed(fromInclusive, toInclusive).boxed().collect(Collectors.toSet());
+    }
+
+    @Test
+    void findSimilar_ShouldReturnNearIdenticalPantryWithCompatibleConstraints() {
+        // Given: 10 ingredientes base; la consulta cambia uno (Jaccard 9/11 ≈ 0.82)
+        index.index("base", new PantryProfile(ids(1, 10), Set.of("peanuts", "gluten"), "vegan"));
+        Set<Long> requested = ids(1, 9);
+        requested.add(42L);
+
+        // When
+        Optional<String> result = index.findSimilar(new PantryProfile(requested, Set.of("peanuts"), "vegan"));
+
+        // Then
+        assertEquals(Optional.of("base"), result);
+    }
+
+    @Test
+    void findSimilar_ShouldRejectIncompatibleConstraintsOrLowSimilarity() {
+        // Given
+        index.index("base", new PantryProfile(ids(1, 10), Set.of("peanuts"), "vegan"));
+
+        // When
+        Optional<String> extraAllergy = index.findSimilar(new PantryProfile(ids(1, 10), Set.of("peanuts", "shellfish"), "vegan"));
+        Optional<String> otherDiet = index.findSimilar(new PantryProfile(ids(1, 10), Set.of("peanuts"), "vegetarian"));
+        Optional<String> different = index.findSimilar(new PantryProfile(ids(5, 14), Set.of("peanuts"), "vegan"));
+
+        // Then
+        assertTrue(extraAllergy.isEmpty());
+        assertTrue(otherDiet.isEmpty());
+        assertTrue(different.isEmpty());
+    }
+}
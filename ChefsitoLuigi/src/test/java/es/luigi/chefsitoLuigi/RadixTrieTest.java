@@ -0,0 +1,85 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Service.Impl.RadixTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RadixTrieTest {
+
+    @Test
+    void complete_ShouldFollowPrefixInsideCompressedEdges() {
+        // Given
+        RadixTrie trie = RadixTrie.builder()
+                .add("tomato", 2)
+                .add("tomato puree", 1)
+                .add("tomillo", 0)
+                .add("onion", 3)
+                .build(10);
+
+        // When / Then
+        assertArrayEquals(new int[]{0, 1, 2}, trie.complete("to", 10));
+        assertArrayEquals(new int[]{1, 2}, trie.complete("tomat", 10));
+        assertArrayEquals(new int[]{1}, trie.complete("tomato p", 10));
+        assertArrayEquals(new int[]{3}, trie.complete("o", 10));
+        assertArrayEquals(new int[0], trie.complete("tomatoes", 10));
+        assertArrayEquals(new int[0], trie.complete("x", 10));
+    }
+
+    @Test
+    void complete_ShouldKeepBestRanksAndDeduplicate() {
+        // Given: el rango 4 entra por dos claves
+        RadixTrie trie = RadixTrie.builder()
+                .add("pollo", 4)
+                .add("pollo entero", 4)
+                .add("pollo asado", 7)
+                .add("polenta", 5)
+                .build(2);
+
+        // When / Then
+        assertArrayEquals(new int[]{4, 5}, trie.complete("pol", 10));
+        assertArrayEquals(new int[]{4}, trie.complete("pol", 1));
+        assertArrayEquals(new int[]{4, 7}, trie.complete("pollo", 10));
+    }
+
+    @Test
+    void complete_ShouldMatchBruteForce() {
+        // Given
+        Random random = new Random(7);
+        List<String> keys = new ArrayList<>();
+        RadixTrie.Builder builder = RadixTrie.builder();
+        for (int rank = 0; rank < 300; rank++) {
+            String key = randomWord(random);
+            keys.add(key);
+            builder.add(key, rank);
+        }
+        RadixTrie trie = builder.build(5);
+
+        for (int i = 0; i < 100; i++) {
+            String prefix = randomWord(random).substring(0, 1 + random.nextInt(3));
+
+            // When
+            int[] found = trie.complete(prefix, 5);
+
+            // Then
+            int[] expected = new int[Math.min(5, (int) keys.stream().filter(key -> key.startsWith(prefix)).count())];
+            for (int rank = 0, n = 0; n < expected.length; rank++) {
+                if (keys.get(rank).startsWith(prefix)) {
+                    expected[n++] = rank;
+                }
+            }
+            assertArrayEquals(expected, found, "prefijo " + prefix);
+        }
+    }
+
+    private static String randomWord(Random random) {
+        int length = 3 + random.nextInt(5);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append("aeilmnost".charAt(random.nextInt(9)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Service.Impl.RecipeIdentity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeIdentityTest {
+
+    @Test
+    void of_ShouldBeStableForSameNormalizedContent() {
+        // When
+        String first = RecipeIdentity.of("Tortilla de Patatas", List.of("Huevos", "patatas", "Cebolla"));
+        String regenerated = RecipeIdentity.of("tortilla de patatas ", List.of("cebolla", "PATATAS", "huevos"));
+        String different = RecipeIdentity.of("Tortilla de Patatas", List.of("Huevos", "patatas"));
+
+        // Then
+        assertEquals(first, regenerated);
+        assertNotEquals(first, different);
+        assertEquals(32, first.length());
+    }
+}
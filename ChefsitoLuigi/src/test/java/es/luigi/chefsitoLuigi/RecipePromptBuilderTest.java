@@ -0,0 +1,64 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeRequest;
+import es.luigi.chefsitoLuigi.Service.Impl.EnhancedIngredientInfo;
+import es.luigi.chefsitoLuigi.Service.Impl.RecipePromptBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipePromptBuilderTest {
+
+    private RecipePromptBuilder promptBuilder;
+
+    @BeforeEach
+    void setUp() {
+        promptBuilder = new RecipePromptBuilder();
+        ReflectionTestUtils.setField(promptBuilder, "maxInputTokens", 700);
+        ReflectionTestUtils.setField(promptBuilder, "tokensPerRecipe", 450);
+        ReflectionTestUtils.setField(promptBuilder, "outputOverheadTokens", 100);
+    }
+
+    @Test
+    void build_ShouldTrimIngredientsToBudgetAndDeriveMaxTokens() {
+        // Given
+        List<String> ingredients = IntStream.range(0, 500)
+                .mapToObj(i -> "Ingredient " + i + " (Ingrediente " + i + ") - 100 g")
+                .collect(Collectors.toList());
+        OpenAiRecipeRequest request = OpenAiRecipeRequest.builder().availableIngredients(ingredients).maxRecipes(3).build();
+
+        // When
+        RecipePromptBuilder.RecipePrompt prompt = promptBuilder.build(request);
+
+        // Then
+        int totalTokens = RecipePromptBuilder.estimateTokens(prompt.system()) + RecipePromptBuilder.estimateTokens(prompt.user());
+        assertTrue(totalTokens <= 700);
+        assertTrue(prompt.user().contains("Ingredient 0 "));
+        assertFalse(prompt.user().contains("Ingredient 499 "));
+        assertEquals(100 + 450 * 3, prompt.maxTokens());
+    }
+
+    @Test
+    void pantryPriority_ShouldPutSoonestExpiryAndLargestQuantityFirst() {
+        // Given
+        EnhancedIngredientInfo rice = EnhancedIngredientInfo.builder().englishName("Rice").quantity(1000.0).build();
+        EnhancedIngredientInfo milk = EnhancedIngredientInfo.builder().englishName("Milk").quantity(1.0)
+                .expiryDate(LocalDate.now().plusDays(1)).build();
+        EnhancedIngredientInfo salt = EnhancedIngredientInfo.builder().englishName("Salt").quantity(10.0).build();
+
+        // When
+        List<EnhancedIngredientInfo> ranked = List.of(salt, rice, milk).stream()
+                .sorted(RecipePromptBuilder.pantryPriority())
+                .collect(Collectors.toList());
+
+        // Then
+        assertEquals(List.of(milk, rice, salt), ranked);
+    }
+}
@@ -0,0 +1,128 @@
+package es.luigi.chefsitoLuigi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Exception.LlmUnavailableException;
+import es.luigi.chefsitoLuigi.Exception.RateLimitExceededException;
+import es.luigi.chefsitoLuigi.Repository.RecommendationCacheRepository;
+import es.luigi.chefsitoLuigi.Service.Impl.LlmRateLimiter;
+import es.luigi.chefsitoLuigi.Service.Impl.RecipeRecommendationCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RecipeRecommendationCacheTest {
+
+    private static final Long EMPTY_BUCKET_USER = 1L;
+    private static final Long OTHER_USER = 2L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecipeRecommendationCache recommendationCache;
+    private LlmRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        recommendationCache = new RecipeRecommendationCache(meterRegistry, mock(RecommendationCacheRepository.class), new ObjectMapper());
+        ReflectionTestUtils.setField(recommendationCache, "maxWeightKb", 1024L);
+        ReflectionTestUtils.setField(recommendationCache, "ttlMinutes", 30L);
+        ReflectionTestUtils.setField(recommendationCache, "waitTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(recommendationCache, "l2Enabled", false);
+        ReflectionTestUtils.invokeMethod(recommendationCache, "init");
+
+        rateLimiter = new LlmRateLimiter(meterRegistry);
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimiter, "maxWaitMs", 0L);
+        ReflectionTestUtils.setField(rateLimiter, "userCapacity", 1.0);
+        ReflectionTestUtils.setField(rateLimiter, "userRefillPerMinute", 1.0);
+        ReflectionTestUtils.setField(rateLimiter, "userIdleExpiryMinutes", 60L);
+        ReflectionTestUtils.setField(rateLimiter, "globalCapacity", 10.0);
+        ReflectionTestUtils.setField(rateLimiter, "globalRefillPerMinute", 60.0);
+        ReflectionTestUtils.invokeMethod(rateLimiter, "init");
+    }
+
+    @Test
+    void getOrGenerate_WaiterShouldNotInheritLeadersRateLimit() throws Exception {
+        // Given: el usuario 1 ya gastó su token; el usuario 2 tiene el suyo
+        rateLimiter.acquire(EMPTY_BUCKET_USER);
+        List<OpenAiRecipeResponse> recipes = List.of(OpenAiRecipeResponse.builder().title("Tortilla").build());
+        Supplier<List<OpenAiRecipeResponse>> leaderGenerator = () -> {
+            // No se consulta el límite hasta que el otro usuario está esperando esta llamada
+            awaitCoalescedWaiter();
+            rateLimiter.acquire(EMPTY_BUCKET_USER);
+            return recipes;
+        };
+        Supplier<List<OpenAiRecipeResponse>> waiterGenerator = () -> {
+            rateLimiter.acquire(OTHER_USER);
+            return recipes;
+        };
+
+        // When
+        CompletableFuture<List<OpenAiRecipeResponse>> leader =
+                CompletableFuture.supplyAsync(() -> recommendationCache.getOrGenerate("key", leaderGenerator));
+        awaitInFlight();
+        List<OpenAiRecipeResponse> waiterResult = recommendationCache.getOrGenerate("key", waiterGenerator);
+
+        // Then
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RateLimitExceededException.class, leaderError.getCause());
+        assertEquals(recipes, waiterResult);
+        assertEquals(1.0, meterRegistry.counter("recommendations.single_flight.rate_limited_retries").count());
+    }
+
+    @Test
+    void getOrGenerate_WaiterTimeoutShouldFailInsteadOfReturningNothing() throws Exception {
+        // Given: el líder no termina hasta que el que espera se ha rendido
+        ReflectionTestUtils.setField(recommendationCache, "waitTimeoutSeconds", 0L);
+        List<OpenAiRecipeResponse> recipes = List.of(OpenAiRecipeResponse.builder().title("Tortilla").build());
+        CountDownLatch waiterGaveUp = new CountDownLatch(1);
+        CompletableFuture<List<OpenAiRecipeResponse>> leader = CompletableFuture.supplyAsync(() ->
+                recommendationCache.getOrGenerate("key", () -> {
+                    try {
+                        waiterGaveUp.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return recipes;
+                }));
+        awaitInFlight();
+
+        // When
+        assertThrows(LlmUnavailableException.class, () -> recommendationCache.getOrGenerate("key", List::of));
+        waiterGaveUp.countDown();
+
+        // Then: la llamada compartida sigue adelante y queda en caché
+        assertEquals(recipes, leader.get(5, TimeUnit.SECONDS));
+        assertEquals(recipes, recommendationCache.get("key").orElseThrow());
+        assertEquals(1.0, meterRegistry.counter("recommendations.single_flight.wait_timeouts").count());
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("recommendations.single_flight.in_flight").gauge().value() < 1) {
+            assertTrue(System.nanoTime() < deadline, "La llamada del líder no llegó a registrarse");
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitCoalescedWaiter() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("recommendations.single_flight.coalesced").count() < 1) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Nadie se unió a la llamada en curso");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package es.luigi.chefsitoLuigi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Service.Impl.RecipeResponseParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeResponseParserTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecipeResponseParser parser;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        parser = new RecipeResponseParser(new ObjectMapper(), meterRegistry);
+        ReflectionTestUtils.setField(parser, "structuredOutput", true);
+        ReflectionTestUtils.invokeMethod(parser, "init");
+    }
+
+    private String recipe(String title, String preparationTime) {
+        return "{\"title\":\"" + title + "\",\"description\":\"Rica\",\"ingredients\":[\"huevo\"],"
+                + "\"instructions\":[\"1. Batir\"],\"preparationTime\":" + preparationTime
+                + ",\"difficulty\":\"fácil\",\"category\":\"cena\"}";
+    }
+
+    @Test
+    void parse_ShouldKeepCompleteRecipesFromTruncatedArray() {
+        // Given: max_tokens corta la tercera receta
+        String response = "{\"recipes\":[" + recipe("Tortilla", "20") + "," + recipe("Gazpacho", "15")
+                + ",{\"title\":\"Paella\",\"ingredients\":[\"arr";
+
+        // When
+        List<OpenAiRecipeResponse> recipes = parser.parse(response);
+
+        // Then
+        assertEquals(List.of("Tortilla", "Gazpacho"), recipes.stream().map(OpenAiRecipeResponse::getTitle).toList());
+        assertEquals(1.0, meterRegistry.counter("openai.parse", "result", "truncated").count());
+    }
+
+    @Test
+    void parse_ShouldDropOnlyRecipesThatBreakTheSchema() {
+        // Given: una con tipo incorrecto y otra sin campos obligatorios
+        String response = "```json\n[" + recipe("Tortilla", "20") + "," + recipe("Mala", "\"mucho\"")
+                + ",{\"title\":\"Incompleta\"}," + recipe("Gazpacho", "15") + "]```";
+
+        // When
+        List<OpenAiRecipeResponse> recipes = parser.parse(response);
+
+        // Then
+        assertEquals(List.of("Tortilla", "Gazpacho"), recipes.stream().map(OpenAiRecipeResponse::getTitle).toList());
+        assertEquals(2.0, meterRegistry.counter("openai.parse.recipes_dropped").count());
+        assertEquals(2.0, meterRegistry.counter("openai.schema.violations").count());
+        assertEquals(1.0, meterRegistry.counter("openai.parse", "result", "complete").count());
+    }
+
+    @Test
+    void parse_WithoutStructuredOutput_ShouldOnlyRequireTitleIngredientsAndInstructions() {
+        // Given: sin response_format el modelo puede omitir description, dificultad, tiempo...
+        ReflectionTestUtils.setField(parser, "structuredOutput", false);
+        String response = "[{\"title\":\"Tortilla\",\"ingredients\":[\"huevo\"],\"instructions\":[\"1. Batir\"]},"
+                + "{\"title\":\"Sin pasos\",\"ingredients\":[\"pan\"]}]";
+
+        // When
+        List<OpenAiRecipeResponse> recipes = parser.parse(response);
+
+        // Then
+        assertEquals(List.of("Tortilla"), recipes.stream().map(OpenAiRecipeResponse::getTitle).toList());
+        assertEquals(1.0, meterRegistry.counter("openai.schema.violations").count());
+    }
+
+    @Test
+    void parse_ShouldCountResponsesWithoutArrayAsFailures() {
+        // When
+        List<OpenAiRecipeResponse> recipes = parser.parse("Lo siento, no puedo ayudarte");
+
+        // Then
+        assertTrue(recipes.isEmpty());
+        assertEquals(1.0, meterRegistry.counter("openai.parse", "result", "failed").count());
+    }
+
+    @Test
+    void responseFormat_ShouldRequireEveryRecipeFieldExceptOpenAiId() {
+        // When
+        Object required = RecipeResponseParser.RECIPE_SCHEMA.get("required");
+
+        // Then
+        assertEquals(List.of("title", "description", "ingredients", "instructions", "preparationTime", "difficulty", "category"), required);
+        assertEquals(false, RecipeResponseParser.RECIPE_SCHEMA.get("additionalProperties"));
+    }
+}
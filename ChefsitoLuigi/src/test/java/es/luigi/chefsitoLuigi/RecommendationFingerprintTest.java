@@ -0,0 +1,59 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
+import es.luigi.chefsitoLuigi.Service.Impl.EnhancedIngredientInfo;
+import es.luigi.chefsitoLuigi.Service.Impl.RecommendationFingerprint;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecommendationFingerprintTest {
+
+    private EnhancedIngredientInfo ingredient(long id, double quantity) {
+        return EnhancedIngredientInfo.builder().ingredientId(id).englishName("item" + id).quantity(quantity).build();
+    }
+
+    @Test
+    void forPantry_ShouldIgnoreOrderAndSmallQuantityChanges() {
+        // Given
+        UserPreferencesDto preferences = UserPreferencesDto.builder()
+                .allergies(List.of("Peanuts", " gluten"))
+                .dietType("VEGAN")
+                .build();
+        UserPreferencesDto samePreferencesReordered = UserPreferencesDto.builder()
+                .allergies(List.of("GLUTEN", "peanuts"))
+                .dietType("vegan ")
+                .build();
+
+        // When
+        String first = RecommendationFingerprint.forPantry(
+                List.of(ingredient(1, 500), ingredient(2, 3)), preferences, 5);
+        String second = RecommendationFingerprint.forPantry(
+                List.of(ingredient(2, 3), ingredient(1, 450)), samePreferencesReordered, 5);
+
+        // Then
+        assertEquals(first, second);
+        assertEquals(32, first.length());
+    }
+
+    @Test
+    void forPantry_ShouldDifferWhenPantryOrDietChanges() {
+        // Given
+        List<EnhancedIngredientInfo> pantry = List.of(ingredient(1, 500), ingredient(2, 3));
+        UserPreferencesDto vegan = UserPreferencesDto.builder().dietType("VEGAN").build();
+        UserPreferencesDto vegetarian = UserPreferencesDto.builder().dietType("VEGETARIAN").build();
+
+        // When
+        String base = RecommendationFingerprint.forPantry(pantry, vegan, 5);
+        String otherDiet = RecommendationFingerprint.forPantry(pantry, vegetarian, 5);
+        String otherQuantity = RecommendationFingerprint.forPantry(List.of(ingredient(1, 2000), ingredient(2, 3)), vegan, 5);
+        String otherIngredient = RecommendationFingerprint.forPantry(List.of(ingredient(1, 500), ingredient(3, 3)), vegan, 5);
+
+        // Then
+        assertNotEquals(base, otherDiet);
+        assertNotEquals(base, otherQuantity);
+        assertNotEquals(base, otherIngredient);
+    }
+}
@@ -0,0 +1,145 @@
+package es.luigi.chefsitoLuigi;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.RecommendationJobDto;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.RecommendationJobStatus;
+import es.luigi.chefsitoLuigi.Exception.ApiError;
+import es.luigi.chefsitoLuigi.Exception.GlobalExceptionHandler;
+import es.luigi.chefsitoLuigi.Service.Impl.RecommendationJobServiceImpl;
+import es.luigi.chefsitoLuigi.Service.OpenAiRecipeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RecommendationJobServiceImplTest {
+
+    private final List<OpenAiRecipeResponse> recipes = List.of(OpenAiRecipeResponse.builder().title("Tortilla").build());
+    // Los trabajos no terminan hasta que el test los libera
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private OpenAiRecipeService openAiRecipeService;
+    private RecommendationJobServiceImpl jobService;
+
+    @BeforeEach
+    void setUp() {
+        openAiRecipeService = mock(OpenAiRecipeService.class);
+        when(openAiRecipeService.getRecipeRecommendationsForUser(anyLong())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return recipes;
+        });
+        jobService = new RecommendationJobServiceImpl(openAiRecipeService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jobService, "threads", 1);
+        ReflectionTestUtils.setField(jobService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(jobService, "ttlMinutes", 15L);
+        ReflectionTestUtils.setField(jobService, "maxJobs", 100L);
+        ReflectionTestUtils.setField(jobService, "sseTimeoutSeconds", 30L);
+        ReflectionTestUtils.invokeMethod(jobService, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        ReflectionTestUtils.invokeMethod(jobService, "shutdown");
+    }
+
+    @Test
+    void subscribe_AfterJobFinished_ShouldNotifyImmediately() throws InterruptedException {
+        // Given: el trabajo termina antes de que llegue el suscriptor
+        RecommendationJobDto job = jobService.submitForUser(1L);
+        release.countDown();
+        awaitStatus(job.getJobId(), RecommendationJobStatus.COMPLETED);
+
+        // When
+        SseEmitter emitter = jobService.subscribe(job.getJobId());
+
+        // Then: recibe el resultado y se cierra sin quedarse colgado hasta el timeout
+        assertTrue(hasPendingEvents(emitter));
+        assertTrue(isCompleted(emitter));
+    }
+
+    @Test
+    void subscribe_WhileJobRunning_ShouldBeNotifiedOnFinish() throws InterruptedException {
+        // Given
+        RecommendationJobDto job = jobService.submitForUser(1L);
+        SseEmitter emitter = jobService.subscribe(job.getJobId());
+        assertFalse(hasPendingEvents(emitter));
+
+        // When
+        release.countDown();
+        awaitStatus(job.getJobId(), RecommendationJobStatus.COMPLETED);
+
+        // Then
+        awaitCompleted(emitter);
+        assertTrue(hasPendingEvents(emitter));
+        assertEquals(recipes, jobService.findJob(job.getJobId()).orElseThrow().getRecipes());
+    }
+
+    @Test
+    void submit_WithFullQueue_ShouldBeRejectedAsServiceUnavailable() {
+        // Given: un trabajo en ejecución y otro en la única plaza de la cola
+        RecommendationJobDto running = jobService.submitForUser(1L);
+        RecommendationJobDto queued = jobService.submitForUser(2L);
+
+        // When
+        RejectedExecutionException rejected = assertThrows(RejectedExecutionException.class,
+                () -> jobService.submitForUser(3L));
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestURI()).thenReturn("/api/recommendations/jobs/for-user/3");
+        ResponseEntity<ApiError> response = new GlobalExceptionHandler().handleRejected(rejected, request);
+
+        // Then: 503 y el trabajo rechazado no queda registrado como pendiente
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertTrue(jobService.findJob(running.getJobId()).isPresent());
+        assertTrue(jobService.findJob(queued.getJobId()).isPresent());
+        assertEquals(2L, jobCount());
+    }
+
+    private void awaitStatus(String jobId, RecommendationJobStatus status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (jobService.findJob(jobId).orElseThrow().getStatus() != status) {
+            assertTrue(System.nanoTime() < deadline, "El trabajo no llegó a " + status);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitCompleted(SseEmitter emitter) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!isCompleted(emitter)) {
+            assertTrue(System.nanoTime() < deadline, "El suscriptor no recibió el resultado");
+            Thread.sleep(5);
+        }
+    }
+
+    // Sin conexión HTTP el emisor guarda los eventos enviados hasta que se inicializa
+    private static boolean hasPendingEvents(SseEmitter emitter) {
+        return !((Collection<?>) ReflectionTestUtils.getField(emitter, "earlySendAttempts")).isEmpty();
+    }
+
+    private static boolean isCompleted(SseEmitter emitter) {
+        AtomicReference<?> state = (AtomicReference<?>) ReflectionTestUtils.getField(emitter, "state");
+        return "COMPLETE".equals(String.valueOf(state.get()));
+    }
+
+    private long jobCount() {
+        Cache<?, ?> jobs = (Cache<?, ?>) ReflectionTestUtils.getField(jobService, "jobs");
+        jobs.cleanUp();
+        return jobs.estimatedSize();
+    }
+}
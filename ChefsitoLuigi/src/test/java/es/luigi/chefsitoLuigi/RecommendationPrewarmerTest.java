@@ -0,0 +1,175 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Event.PantryChangedEvent;
+import es.luigi.chefsitoLuigi.Event.UserProfileChangedEvent;
+import es.luigi.chefsitoLuigi.Service.Impl.ChatCompletionBackend;
+import es.luigi.chefsitoLuigi.Service.Impl.RecommendationPrewarmer;
+import es.luigi.chefsitoLuigi.Service.OpenAiRecipeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RecommendationPrewarmerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OpenAiRecipeService openAiRecipeService;
+    private RecommendationPrewarmer prewarmer;
+    private ManualScheduler scheduler;
+    // Tareas entregadas a los workers; se ejecutan a mano
+    private final List<Runnable> workerTasks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        openAiRecipeService = mock(OpenAiRecipeService.class);
+        prewarmer = new RecommendationPrewarmer(openAiRecipeService, mock(ChatCompletionBackend.class), meterRegistry);
+        ReflectionTestUtils.setField(prewarmer, "enabled", true);
+        ReflectionTestUtils.setField(prewarmer, "debounceMs", 3000L);
+        ReflectionTestUtils.setField(prewarmer, "maxConcurrency", 1);
+        ReflectionTestUtils.invokeMethod(prewarmer, "init");
+        ReflectionTestUtils.invokeMethod(prewarmer, "shutdown");
+
+        scheduler = new ManualScheduler();
+        ExecutorService workers = mock(ExecutorService.class);
+        doAnswer(invocation -> workerTasks.add(invocation.getArgument(0))).when(workers).execute(any(Runnable.class));
+        ReflectionTestUtils.setField(prewarmer, "scheduler", scheduler.executor);
+        ReflectionTestUtils.setField(prewarmer, "workers", workers);
+    }
+
+    @AfterEach
+    void tearDown() {
+        meterRegistry.close();
+    }
+
+    @Test
+    void changesWithinDebounceWindow_ShouldPrewarmOnce() {
+        // Given
+        prewarmer.onPantryChanged(new PantryChangedEvent(1L));
+        prewarmer.onProfileChanged(new UserProfileChangedEvent(1L));
+        prewarmer.onPantryChanged(new PantryChangedEvent(1L));
+
+        // When
+        scheduler.runDue();
+        workerTasks.forEach(Runnable::run);
+
+        // Then
+        verify(openAiRecipeService, times(1)).prewarmRecommendationsForUser(1L);
+        assertEquals(1.0, counter("scheduled"));
+        assertEquals(2.0, counter("coalesced"));
+        assertEquals(0.0, pendingGauge());
+    }
+
+    @Test
+    void staleFire_ShouldNotDropTheNewerSchedule() {
+        // Given: el primer disparo ya ha empezado cuando llega otro cambio (no se puede cancelar)
+        prewarmer.onPantryChanged(new PantryChangedEvent(1L));
+        ManualScheduler.Task first = scheduler.tasks.get(0);
+        first.started = true;
+        prewarmer.onPantryChanged(new PantryChangedEvent(1L));
+
+        // When: el disparo antiguo llega a ejecutarse después del nuevo cambio
+        first.runnable.run();
+
+        // Then: la programación nueva sigue pendiente y es la única que precalienta
+        assertEquals(1.0, pendingGauge());
+        assertTrue(workerTasks.isEmpty());
+        scheduler.runDue();
+        workerTasks.forEach(Runnable::run);
+        verify(openAiRecipeService, times(1)).prewarmRecommendationsForUser(1L);
+        assertEquals(0.0, pendingGauge());
+        assertEquals(2.0, counter("scheduled"));
+    }
+
+    @Test
+    void fire_WithoutFreePermit_ShouldDeferAnotherWindow() {
+        // Given: el único hueco lo ocupa el precalentamiento del usuario 1
+        prewarmer.onPantryChanged(new PantryChangedEvent(1L));
+        prewarmer.onPantryChanged(new PantryChangedEvent(2L));
+
+        // When
+        scheduler.runDue();
+
+        // Then: el usuario 2 vuelve a programarse en vez de encolarse
+        assertEquals(1, workerTasks.size());
+        assertEquals(1.0, counter("deferred"));
+        assertEquals(1.0, pendingGauge());
+        assertEquals(1, scheduler.tasks.size());
+
+        // Y cuando el primero termina, el aplazado se ejecuta en la siguiente ventana
+        workerTasks.remove(0).run();
+        scheduler.runDue();
+        workerTasks.forEach(Runnable::run);
+        verify(openAiRecipeService).prewarmRecommendationsForUser(1L);
+        verify(openAiRecipeService).prewarmRecommendationsForUser(2L);
+        assertEquals(0.0, pendingGauge());
+    }
+
+    private double counter(String result) {
+        return meterRegistry.counter("recommendations.prewarm", "result", result).count();
+    }
+
+    private double pendingGauge() {
+        return meterRegistry.get("recommendations.prewarm.pending").gauge().value();
+    }
+
+    /**
+     * Planificador manual: guarda las tareas y solo las ejecuta al llamar a runDue().
+     * cancel(false) funciona mientras la tarea no haya empezado.
+     */
+    private static final class ManualScheduler {
+
+        private final List<Task> tasks = new ArrayList<>();
+        private final ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+
+        ManualScheduler() {
+            when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+                Task task = new Task(invocation.getArgument(0));
+                tasks.add(task);
+                return task.future;
+            });
+        }
+
+        // Ejecuta las tareas programadas hasta ahora; las que programen ellas quedan para la siguiente ronda
+        void runDue() {
+            List<Task> due = new ArrayList<>(tasks);
+            tasks.clear();
+            for (Task task : due) {
+                if (!task.cancelled) {
+                    task.started = true;
+                    task.runnable.run();
+                }
+            }
+        }
+
+        private static final class Task {
+            private final Runnable runnable;
+            private final ScheduledFuture<?> future = mock(ScheduledFuture.class);
+            private boolean started;
+            private boolean cancelled;
+
+            Task(Runnable runnable) {
+                this.runnable = runnable;
+                when(future.cancel(anyBoolean())).thenAnswer(invocation -> {
+                    if (started) {
+                        return false;
+                    }
+                    cancelled = true;
+                    return true;
+                });
+            }
+        }
+    }
+}
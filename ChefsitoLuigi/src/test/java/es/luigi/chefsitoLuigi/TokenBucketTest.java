@@ -0,0 +1,52 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Service.Impl.TokenBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void reserve_ShouldQueueWithinDeadlineAndRejectBeyondIt() {
+        // Given: 2 tokens, 1 token por segundo
+        TokenBucket bucket = new TokenBucket(2, 1);
+        long now = System.nanoTime();
+
+        // When
+        TokenBucket.Reservation first = bucket.reserve(0, now);
+        TokenBucket.Reservation second = bucket.reserve(0, now);
+        TokenBucket.Reservation queued = bucket.reserve(2 * SECOND, now);
+        TokenBucket.Reservation rejected = bucket.reserve(SECOND, now);
+
+        // Then
+        assertTrue(first.granted());
+        assertTrue(second.granted());
+        assertTrue(queued.granted());
+        assertEquals(SECOND, queued.waitNanos(), 1_000);
+        assertFalse(rejected.granted());
+        assertEquals(2 * SECOND, rejected.waitNanos(), 1_000);
+    }
+
+    @Test
+    void reserve_ShouldRefillOverTimeUpToCapacity() {
+        // Given
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = System.nanoTime();
+        bucket.reserve(0, now);
+
+        // When
+        TokenBucket.Reservation tooSoon = bucket.reserve(0, now + SECOND / 2);
+        TokenBucket.Reservation afterRefill = bucket.reserve(0, now + 10 * SECOND);
+        TokenBucket.Reservation capped = bucket.reserve(0, now + 10 * SECOND);
+
+        // Then
+        assertFalse(tooSoon.granted());
+        assertTrue(afterRefill.granted());
+        assertFalse(capped.granted());
+    }
+}
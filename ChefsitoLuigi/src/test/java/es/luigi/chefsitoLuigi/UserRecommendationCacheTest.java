@@ -0,0 +1,121 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Dto.OpenAI.OpenAiRecipeResponse;
+import es.luigi.chefsitoLuigi.Dto.OpenAI.UserPreferencesDto;
+import es.luigi.chefsitoLuigi.Event.PantryChangedEvent;
+import es.luigi.chefsitoLuigi.Event.UserProfileChangedEvent;
+import es.luigi.chefsitoLuigi.Repository.UserRepository;
+import es.luigi.chefsitoLuigi.Service.Impl.UserRecommendationCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserRecommendationCacheTest {
+
+    private UserRecommendationCache userCache;
+    private UserRepository userRepository;
+    // Columna users.recommendation_version compartida por todas las instancias
+    private final Map<Long, Long> versionColumn = new ConcurrentHashMap<>(Map.of(1L, 0L, 2L, 0L));
+    private final List<OpenAiRecipeResponse> recipes = List.of(OpenAiRecipeResponse.builder().title("Tortilla").build());
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findRecommendationVersion(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(versionColumn.get(invocation.<Long>getArgument(0))));
+        when(userRepository.bumpRecommendationVersion(anyLong()))
+                .thenAnswer(invocation -> versionColumn.computeIfPresent(invocation.getArgument(0), (id, v) -> v + 1) == null ? 0 : 1);
+        userCache = newInstance();
+    }
+
+    private UserRecommendationCache newInstance() {
+        UserRecommendationCache cache = new UserRecommendationCache(new SimpleMeterRegistry(), userRepository);
+        ReflectionTestUtils.setField(cache, "ttlHours", 24L);
+        ReflectionTestUtils.setField(cache, "maxUsers", 100L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+        return cache;
+    }
+
+    @Test
+    void get_ShouldServeEntryWhileVersionIsUnchanged() {
+        // Given
+        long version = userCache.currentVersion(1L);
+        userCache.put(1L, version, recipes, UserPreferencesDto.builder().dietType("vegana").build());
+
+        // When
+        long again = userCache.currentVersion(1L);
+
+        // Then
+        assertEquals(version, again);
+        assertEquals(recipes, userCache.get(1L, again).orElseThrow().recipes());
+    }
+
+    @Test
+    void pantryOrProfileChange_ShouldBumpVersionAndDropEntry() {
+        // Given
+        long version = userCache.currentVersion(1L);
+        userCache.put(1L, version, recipes, null);
+        userCache.put(2L, userCache.currentVersion(2L), recipes, null);
+
+        // When
+        userCache.onPantryChanged(new PantryChangedEvent(1L));
+        long afterPantry = userCache.currentVersion(1L);
+        userCache.onProfileChanged(new UserProfileChangedEvent(1L));
+
+        // Then
+        assertNotEquals(version, afterPantry);
+        assertNotEquals(afterPantry, userCache.currentVersion(1L));
+        assertTrue(userCache.get(1L, version).isEmpty());
+        assertTrue(userCache.get(2L, userCache.currentVersion(2L)).isPresent());
+    }
+
+    @Test
+    void put_ShouldIgnoreResultComputedBeforeAChange() {
+        // Given: la generación lee la versión y la despensa cambia mientras tanto
+        long version = userCache.currentVersion(1L);
+        userCache.onPantryChanged(new PantryChangedEvent(1L));
+
+        // When
+        userCache.put(1L, version, recipes, null);
+
+        // Then
+        assertTrue(userCache.get(1L, userCache.currentVersion(1L)).isEmpty());
+    }
+
+    @Test
+    void changeHandledByAnotherInstance_ShouldInvalidateThisOne() {
+        // Given: dos nodos con la misma entrada en memoria
+        UserRecommendationCache otherNode = newInstance();
+        long version = userCache.currentVersion(1L);
+        userCache.put(1L, version, recipes, null);
+
+        // When: el cambio de despensa lo atiende el otro nodo
+        otherNode.onPantryChanged(new PantryChangedEvent(1L));
+
+        // Then: este nodo ve la nueva versión y deja de servir la entrada antigua
+        assertTrue(userCache.get(1L, userCache.currentVersion(1L)).isEmpty());
+    }
+
+    @Test
+    void unknownUser_ShouldNeverHit() {
+        // Given
+        long version = userCache.currentVersion(99L);
+
+        // When
+        userCache.put(99L, version, recipes, null);
+
+        // Then
+        assertTrue(userCache.get(99L, version).isEmpty());
+    }
+}
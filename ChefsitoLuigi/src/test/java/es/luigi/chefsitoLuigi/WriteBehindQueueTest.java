@@ -0,0 +1,84 @@
+package es.luigi.chefsitoLuigi;
+
+import es.luigi.chefsitoLuigi.Service.Impl.WriteBehindQueue;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+
+    @Test
+    void close_ShouldFlushPendingItemsInBatches() {
+        // Given
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", 100, 10, Duration.ofSeconds(5), 0,
+                Duration.ZERO, Duration.ofSeconds(5), batches::add, new SimpleMeterRegistry());
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            queue.submit(i);
+        }
+        queue.close();
+
+        // Then
+        List<Integer> written = new ArrayList<>();
+        batches.forEach(written::addAll);
+        assertEquals(25, written.size());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 10));
+    }
+
+    @Test
+    void submit_ShouldRetryFailedBatches() {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", 10, 10, Duration.ofMillis(10), 2,
+                Duration.ZERO, Duration.ofSeconds(5), batch -> {
+                    if (attempts.incrementAndGet() == 1) {
+                        throw new IllegalStateException("base de datos caída");
+                    }
+                    written.addAll(batch);
+                }, new SimpleMeterRegistry());
+
+        // When
+        queue.submit(1);
+        queue.close();
+
+        // Then
+        assertEquals(List.of(1), written);
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void poisonItem_ShouldBeDroppedAloneAndTheRestWritten() {
+        // Given: el elemento 7 falla siempre (p. ej. un título de más de 255 caracteres)
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", 100, 10, Duration.ofSeconds(5), 2,
+                Duration.ZERO, Duration.ofSeconds(5), batch -> {
+                    if (batch.contains(7)) {
+                        throw new IllegalStateException("value too long for type character varying(255)");
+                    }
+                    written.addAll(batch);
+                }, meterRegistry);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            queue.submit(i);
+        }
+        queue.close();
+
+        // Then
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 8, 9), written.stream().sorted().toList());
+        assertEquals(1.0, meterRegistry.counter("write_behind.dropped", Tags.of("queue", "test")).count());
+        assertEquals(9.0, meterRegistry.counter("write_behind.written", Tags.of("queue", "test")).count());
+    }
+}